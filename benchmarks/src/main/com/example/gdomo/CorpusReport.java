@@ -0,0 +1,307 @@
+package com.example.gdomo;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Runs recognizers over a folder of screenshots named after their cards, like {@code java_test_task/imgs_marked}, and
+ * reports throughput, per-image latency and allocation of decoding and recognizing over all passes, and accuracy with
+ * the confusion of values and suits. Unlike the tests it goes on past mismatches.
+ * <p>
+ * {@code CorpusReport <engine>|all [folder] [--rounds N] [--warmup N] [--json file]}: the folder defaults to
+ * {@code brainshells.fixtures}, screenshots are read into memory first and recognized {@code --warmup} times (1 by
+ * default) before the {@code --rounds} measured passes (1 by default). With {@code --json} the reports are also written
+ * to the file as JSON, one object per engine, to compare between builds. The glyph cache is off whatever
+ * {@code brainshells.glyphCache.size} says: the warmup would fill it and the measured passes would only hit it.
+ */
+public class CorpusReport {
+    private static final String FOLDER = System.getProperty("brainshells.fixtures", "../java_test_task/imgs_marked");
+    private static final List<String> ENGINES = List.of("key-pixel", "sample-image", "rendered-image", "rendered-feature", "cascade");
+
+    private record Screenshot(String name, String expected, byte[] png) {
+    }
+
+    private record Report(String engine, int images, int recognitions, int correct, int cards, int correctCards, double seconds,
+                          long[] latencyNanos, long allocatedBytes, Map<String, Map<String, Integer>> valueConfusion,
+                          Map<String, Map<String, Integer>> suitConfusion, List<String> mismatches) {
+        double imagesPerSecond() {
+            return recognitions / seconds;
+        }
+
+        long latencyPercentile(double percentile) {
+            return latencyNanos[Math.max(0, (int) Math.ceil(percentile / 100 * latencyNanos.length) - 1)];
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: CorpusReport <" + String.join("|", ENGINES) + "|all> [folder] [--rounds N] [--warmup N] [--json file]");
+            System.exit(2);
+        }
+        String folder = FOLDER;
+        int rounds = 1;
+        int warmup = 1;
+        Path json = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "--json" -> json = Path.of(args[++i]);
+                default -> folder = args[i];
+            }
+        }
+
+        if (Integer.getInteger("brainshells.glyphCache.size", 0) != 0) {
+            System.err.println("Ignoring brainshells.glyphCache.size, the measured passes would only hit what the warmup cached");
+        }
+        // before any engine makes its caches
+        System.setProperty("brainshells.glyphCache.size", "0");
+
+        final List<Screenshot> screenshots = read(folder);
+        final List<String> engines = args[0].equals("all") ? ENGINES : List.of(args[0]);
+        final List<Report> reports = new ArrayList<>();
+        for (String engine : engines) {
+            final Report report = run(engine, screenshots, warmup, rounds);
+            print(report);
+            reports.add(report);
+        }
+        if (json != null) {
+            Files.writeString(json, toJson(reports), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<Screenshot> read(String folder) throws IOException {
+        final File[] files = Optional.ofNullable(new File(folder).listFiles((dir, name) -> name.endsWith(".png"))).orElse(new File[0]);
+        if (files.length == 0) {
+            throw new IllegalArgumentException("No screenshots in " + folder);
+        }
+        Arrays.sort(files);
+        final List<Screenshot> screenshots = new ArrayList<>(files.length);
+        for (File file : files) {
+            final String name = file.getName();
+            screenshots.add(new Screenshot(name, name.substring(0, name.length() - ".png".length()), Files.readAllBytes(file.toPath())));
+        }
+        return screenshots;
+    }
+
+    private static Report run(String engine, List<Screenshot> screenshots, int warmup, int rounds) throws IOException {
+        final CardRecognizer recognizer;
+        final CardStripDecoder decoder;
+        switch (engine) {
+            case "key-pixel" -> {
+                recognizer = KeyPixelCardRecognizer.ENGINE::recognize;
+                decoder = KeyPixelCardRecognizer.STRIP_DECODER;
+            }
+            case "sample-image" -> {
+                recognizer = SampleImageCardRecognizer.ENGINE::recognize;
+                decoder = SampleImageCardRecognizer.STRIP_DECODER;
+            }
+            case "rendered-image" -> {
+                recognizer = RenderedImageCardRecognizer.ENGINE::recognize;
+                decoder = RenderedImageCardRecognizer.STRIP_DECODER;
+            }
+            case "rendered-feature" -> {
+                recognizer = RenderedFeatureCardRecognizer.ENGINE::recognize;
+                decoder = RenderedFeatureCardRecognizer.STRIP_DECODER;
+            }
+            case "cascade" -> {
+                recognizer = CascadeCardRecognizer.ENGINE::recognize;
+                decoder = CascadeCardRecognizer.STRIP_DECODER;
+            }
+            default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+
+        for (int round = 0; round < warmup; round++) {
+            for (Screenshot screenshot : screenshots) {
+                recognize(screenshot, decoder, recognizer);
+            }
+        }
+
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        final long[] latencies = new long[screenshots.size() * rounds];
+        final String[] results = new String[screenshots.size()];
+        final long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        final long started = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < screenshots.size(); i++) {
+                final long imageStarted = System.nanoTime();
+                results[i] = recognize(screenshots.get(i), decoder, recognizer);
+                latencies[round * screenshots.size() + i] = System.nanoTime() - imageStarted;
+            }
+        }
+        final double seconds = (System.nanoTime() - started) / 1e9;
+        final long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        Arrays.sort(latencies);
+
+        int correct = 0;
+        int cards = 0;
+        int correctCards = 0;
+        final Map<String, Map<String, Integer>> valueConfusion = new TreeMap<>();
+        final Map<String, Map<String, Integer>> suitConfusion = new TreeMap<>();
+        final List<String> mismatches = new ArrayList<>();
+        for (int i = 0; i < screenshots.size(); i++) {
+            final Screenshot screenshot = screenshots.get(i);
+            if (screenshot.expected().equals(results[i])) {
+                correct++;
+            } else {
+                mismatches.add(screenshot.name() + " - " + results[i]);
+            }
+            final List<String> expectedCards = cards(screenshot.expected());
+            final List<String> actualCards = cards(results[i]);
+            for (int slot = 0; slot < Math.max(expectedCards.size(), actualCards.size()); slot++) {
+                final String expectedCard = slot < expectedCards.size() ? expectedCards.get(slot) : "--";
+                final String actualCard = slot < actualCards.size() ? actualCards.get(slot) : "--";
+                if (slot < expectedCards.size()) {
+                    cards++;
+                    if (expectedCard.equals(actualCard)) {
+                        correctCards++;
+                    }
+                }
+                count(valueConfusion, value(expectedCard), value(actualCard));
+                count(suitConfusion, suit(expectedCard), suit(actualCard));
+            }
+        }
+        return new Report(engine, screenshots.size(), screenshots.size() * rounds, correct, cards, correctCards, seconds,
+                latencies, allocated, valueConfusion, suitConfusion, mismatches);
+    }
+
+    private static String recognize(Screenshot screenshot, CardStripDecoder decoder, CardRecognizer recognizer) throws IOException {
+        final TableImage table = decoder.decode(screenshot.png());
+        return recognizer.recognize(table.image(), table.origin(), table.layout());
+    }
+
+    /**
+     * @return cards of a description such as {@code 10hKc3c}, a missing card is {@code --}
+     */
+    private static List<String> cards(String description) {
+        final List<String> cards = new ArrayList<>();
+        int i = 0;
+        while (i < description.length()) {
+            final int valueLength = description.startsWith("10", i) ? 2 : 1;
+            final int end = Math.min(description.length(), i + valueLength + 1);
+            cards.add(end - i == valueLength + 1 ? description.substring(i, end) : description.substring(i) + "-");
+            i = end;
+        }
+        return cards;
+    }
+
+    private static String value(String card) {
+        return card.substring(0, card.length() - 1);
+    }
+
+    private static String suit(String card) {
+        return card.substring(card.length() - 1);
+    }
+
+    private static void count(Map<String, Map<String, Integer>> confusion, String expected, String actual) {
+        confusion.computeIfAbsent(expected, key -> new TreeMap<>()).merge(actual, 1, Integer::sum);
+    }
+
+    private static void print(Report report) {
+        System.out.printf(Locale.ROOT, "%s: %d/%d screenshots, %d/%d cards (%.2f%%)%n", report.engine(), report.correct(), report.images(),
+                report.correctCards(), report.cards(), 100.0 * report.correctCards() / report.cards());
+        System.out.printf(Locale.ROOT, "  %.1f screenshots/s, latency p50 %d us, p99 %d us, max %d us, %d bytes allocated per screenshot%n",
+                report.imagesPerSecond(), report.latencyPercentile(50) / 1000, report.latencyPercentile(99) / 1000,
+                report.latencyNanos()[report.latencyNanos().length - 1] / 1000, report.allocatedBytes() / report.recognitions());
+        printConfusion("values", report.valueConfusion());
+        printConfusion("suits", report.suitConfusion());
+        for (String mismatch : report.mismatches()) {
+            System.out.println("  mismatch " + mismatch);
+        }
+    }
+
+    /**
+     * Prints the expected values or suits as rows and the recognized ones as columns.
+     */
+    private static void printConfusion(String title, Map<String, Map<String, Integer>> confusion) {
+        final SortedSet<String> columns = new TreeSet<>();
+        confusion.values().forEach(row -> columns.addAll(row.keySet()));
+        final StringBuilder table = new StringBuilder("  ").append(title).append(" (expected \\ recognized)\n  ").append(String.format("%4s", ""));
+        for (String column : columns) {
+            table.append(String.format("%5s", column));
+        }
+        for (Map.Entry<String, Map<String, Integer>> row : confusion.entrySet()) {
+            table.append("\n  ").append(String.format("%4s", row.getKey()));
+            for (String column : columns) {
+                final Integer count = row.getValue().get(column);
+                table.append(String.format("%5s", count == null ? "." : count));
+            }
+        }
+        System.out.println(table);
+    }
+
+    private static String toJson(List<Report> reports) {
+        final StringBuilder json = new StringBuilder("{\"timestamp\":").append(System.currentTimeMillis()).append(",\"engines\":[");
+        String separator = "";
+        for (Report report : reports) {
+            json.append(separator).append("\n{\"engine\":");
+            appendJsonString(json, report.engine());
+            json.append(",\"screenshots\":").append(report.images())
+                    .append(",\"recognitions\":").append(report.recognitions())
+                    .append(",\"correct\":").append(report.correct())
+                    .append(",\"cards\":").append(report.cards())
+                    .append(",\"correctCards\":").append(report.correctCards())
+                    .append(",\"screenshotsPerSecond\":").append(String.format(Locale.ROOT, "%.2f", report.imagesPerSecond()))
+                    .append(",\"p50Nanos\":").append(report.latencyPercentile(50))
+                    .append(",\"p99Nanos\":").append(report.latencyPercentile(99))
+                    .append(",\"maxNanos\":").append(report.latencyNanos()[report.latencyNanos().length - 1])
+                    .append(",\"allocatedBytesPerScreenshot\":").append(report.allocatedBytes() / report.recognitions())
+                    .append(",\"valueConfusion\":");
+            appendConfusion(json, report.valueConfusion());
+            json.append(",\"suitConfusion\":");
+            appendConfusion(json, report.suitConfusion());
+            json.append(",\"mismatches\":[");
+            String mismatchSeparator = "";
+            for (String mismatch : report.mismatches()) {
+                json.append(mismatchSeparator);
+                appendJsonString(json, mismatch);
+                mismatchSeparator = ",";
+            }
+            json.append("]}");
+            separator = ",";
+        }
+        return json.append("]}\n").toString();
+    }
+
+    private static void appendConfusion(StringBuilder json, Map<String, Map<String, Integer>> confusion) {
+        json.append('{');
+        String separator = "";
+        for (Map.Entry<String, Map<String, Integer>> row : confusion.entrySet()) {
+            json.append(separator);
+            appendJsonString(json, row.getKey());
+            json.append(":{");
+            String cellSeparator = "";
+            for (Map.Entry<String, Integer> cell : row.getValue().entrySet()) {
+                json.append(cellSeparator);
+                appendJsonString(json, cell.getKey());
+                json.append(':').append(cell.getValue());
+                cellSeparator = ",";
+            }
+            json.append('}');
+            separator = ",";
+        }
+        json.append('}');
+    }
+
+    private static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
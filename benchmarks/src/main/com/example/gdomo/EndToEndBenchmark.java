@@ -0,0 +1,54 @@
+package com.example.gdomo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class EndToEndBenchmark {
+    @Param({"key-pixel", "sample-image", "rendered-image", "rendered-feature"})
+    public String engine;
+
+    @Param({"10cKhKd7h.png", "10h10s7d5h.png", "2c3dAh.png"})
+    public String fixture;
+
+    private CardRecognizer recognizer;
+    private CardStripDecoder decoder;
+    private byte[] png;
+
+    @Setup
+    public void setUp() throws IOException {
+        switch (engine) {
+            case "key-pixel" -> {
+                recognizer = KeyPixelCardRecognizer.ENGINE::recognize;
+                decoder = KeyPixelCardRecognizer.STRIP_DECODER;
+            }
+            case "sample-image" -> {
+                recognizer = SampleImageCardRecognizer.ENGINE::recognize;
+                decoder = SampleImageCardRecognizer.STRIP_DECODER;
+            }
+            case "rendered-image" -> {
+                recognizer = RenderedImageCardRecognizer.ENGINE::recognize;
+                decoder = RenderedImageCardRecognizer.STRIP_DECODER;
+            }
+            case "rendered-feature" -> {
+                recognizer = RenderedFeatureCardRecognizer.ENGINE::recognize;
+                decoder = RenderedFeatureCardRecognizer.STRIP_DECODER;
+            }
+            default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+        png = Fixtures.read(fixture);
+    }
+
+    @Benchmark
+    public String decodeAndRecognize() throws IOException {
+        final TableImage table = decoder.decode(png);
+        return recognizer.recognize(table.image(), table.origin(), table.layout());
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.gdomo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class Fixtures {
+    private static final String FOLDER = System.getProperty("brainshells.fixtures", "../java_test_task/imgs_marked");
+
+    static byte[] read(String name) throws IOException {
+        return Files.readAllBytes(Path.of(FOLDER, name));
+    }
+}
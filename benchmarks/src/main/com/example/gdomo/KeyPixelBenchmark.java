@@ -0,0 +1,51 @@
+package com.example.gdomo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyPixelBenchmark {
+    @Param({"10cKhKd7h.png", "2c3dAh.png"})
+    public String fixture;
+
+    private BufferedImage image;
+    private Point origin;
+    private TableLayout layout;
+
+    @Setup
+    public void setUp() throws IOException {
+        final TableImage table = KeyPixelCardRecognizer.STRIP_DECODER.decode(Fixtures.read(fixture));
+        image = table.image();
+        origin = table.origin();
+        layout = table.layout();
+    }
+
+    @Benchmark
+    public boolean backgroundProbe() {
+        return KeyPixelCardRecognizer.probeBlue(image, origin, 0, layout.backgroundProbe());
+    }
+
+    @Benchmark
+    public KeyPixelCardRecognizer.Decision decideValue() {
+        return KeyPixelCardRecognizer.decide(image, origin, KeyPixelCardRecognizer.VALUE_TREE, layout.valueArea(), 0);
+    }
+
+    @Benchmark
+    public KeyPixelCardRecognizer.Decision decideSuit() {
+        return KeyPixelCardRecognizer.decide(image, origin, KeyPixelCardRecognizer.SUIT_TREE, layout.suitArea(), 0);
+    }
+
+    @Benchmark
+    public String recognize() {
+        return KeyPixelCardRecognizer.ENGINE.recognize(image, origin, layout);
+    }
+}
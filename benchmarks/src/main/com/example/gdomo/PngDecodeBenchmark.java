@@ -0,0 +1,38 @@
+package com.example.gdomo;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PngDecodeBenchmark {
+    @Param({"10cKhKd7h.png", "2c3dAh.png"})
+    public String fixture;
+
+    private byte[] png;
+
+    @Setup
+    public void setUp() throws IOException {
+        ImageIO.setUseCache(false);
+        png = Fixtures.read(fixture);
+    }
+
+    @Benchmark
+    public BufferedImage fullImage() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+
+    @Benchmark
+    public TableImage cardStrip() throws IOException {
+        return KeyPixelCardRecognizer.STRIP_DECODER.decode(png);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.gdomo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class RenderedImageBenchmark {
+    @Param({"10cKhKd7h.png", "2c3dAh.png"})
+    public String fixture;
+
+    private BufferedImage image;
+    private Point origin;
+    private TableLayout layout;
+    private long[] valueGlyph;
+    private long[] suitGlyph;
+    private long[] binaryValueGlyph;
+    private long[] binarySuitGlyph;
+
+    @Setup
+    public void setUp() throws IOException {
+        final TableImage table = RenderedImageCardRecognizer.STRIP_DECODER.decode(Fixtures.read(fixture));
+        image = table.image();
+        origin = table.origin();
+        layout = table.layout();
+        valueGlyph = RenderedImageCardRecognizer.toNormalized(image, origin, layout.valueArea(), RenderedImageCardRecognizer.VALUE_SIZE, 0).clone();
+        suitGlyph = RenderedImageCardRecognizer.toNormalized(image, origin, layout.suitArea(), RenderedImageCardRecognizer.SUIT_SIZE, 0).clone();
+        final int[] valueArea = TemplateCardRecognizer.getAreaPixels(image, origin, layout.valueArea(), RenderedImageCardRecognizer.VALUE_SIZE, 0);
+        binaryValueGlyph = BinaryGlyphs.binarize(valueArea, BinaryGlyphs.allocate(valueArea.length));
+        final int[] suitArea = TemplateCardRecognizer.getAreaPixels(image, origin, layout.suitArea(), RenderedImageCardRecognizer.SUIT_SIZE, 0);
+        binarySuitGlyph = BinaryGlyphs.binarize(suitArea, BinaryGlyphs.allocate(suitArea.length));
+    }
+
+    @Benchmark
+    public boolean backgroundProbe() {
+        return TemplateCardRecognizer.isBackground(image, origin, layout.backgroundProbe(), 0);
+    }
+
+    @Benchmark
+    public int[] extractValueArea() {
+        return TemplateCardRecognizer.getAreaPixels(image, origin, layout.valueArea(), RenderedImageCardRecognizer.VALUE_SIZE, 0);
+    }
+
+    @Benchmark
+    public long[] normalizeValue() {
+        return RenderedImageCardRecognizer.toNormalized(image, origin, layout.valueArea(), RenderedImageCardRecognizer.VALUE_SIZE, 0);
+    }
+
+    @Benchmark
+    public long[] normalizeSuit() {
+        return RenderedImageCardRecognizer.toNormalized(image, origin, layout.suitArea(), RenderedImageCardRecognizer.SUIT_SIZE, 0);
+    }
+
+    @Benchmark
+    public GlyphMatch matchValue() {
+        return RenderedImageCardRecognizer.VALUE_MATCHER.closest(valueGlyph);
+    }
+
+    @Benchmark
+    public GlyphMatch matchValueExhaustive() {
+        return BinaryGlyphs.closest(valueGlyph, RenderedImageCardRecognizer.VALUES_TO_SAMPLE);
+    }
+
+    @Benchmark
+    public GlyphMatch matchSuit() {
+        return RenderedImageCardRecognizer.SUIT_MATCHER.closest(suitGlyph);
+    }
+
+    @Benchmark
+    public GlyphMatch matchSuitExhaustive() {
+        return BinaryGlyphs.closest(suitGlyph, RenderedImageCardRecognizer.SUITS_TO_SAMPLE);
+    }
+
+    @Benchmark
+    public GlyphMatch classifyValue() {
+        return RenderedFeatureCardRecognizer.VALUE_INDEX.closest(binaryValueGlyph);
+    }
+
+    @Benchmark
+    public GlyphMatch classifySuit() {
+        return RenderedFeatureCardRecognizer.SUIT_INDEX.closest(binarySuitGlyph);
+    }
+
+    @Benchmark
+    public String recognize() {
+        return RenderedImageCardRecognizer.ENGINE.recognize(image, origin, layout);
+    }
+
+    @Benchmark
+    public String recognizeByFeatures() {
+        return RenderedFeatureCardRecognizer.ENGINE.recognize(image, origin, layout);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.gdomo;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SampleImageBenchmark {
+    @Param({"10cKhKd7h.png", "2c3dAh.png"})
+    public String fixture;
+
+    private BufferedImage image;
+    private Point origin;
+    private TableLayout layout;
+    private int[] valuePixels;
+    private int[] suitPixels;
+    private long[] valueGlyph;
+    private long[] suitGlyph;
+
+    @Setup
+    public void setUp() throws IOException {
+        final TableImage table = SampleImageCardRecognizer.STRIP_DECODER.decode(Fixtures.read(fixture));
+        image = table.image();
+        origin = table.origin();
+        layout = table.layout();
+        valuePixels = TemplateCardRecognizer.getAreaPixels(image, origin, layout.valueArea(), SampleImageCardRecognizer.VALUE_SIZE, 0).clone();
+        suitPixels = TemplateCardRecognizer.getAreaPixels(image, origin, layout.suitArea(), SampleImageCardRecognizer.SUIT_SIZE, 0).clone();
+        valueGlyph = SampleImageCardRecognizer.toNormalizedGrayscale(valuePixels);
+        suitGlyph = SampleImageCardRecognizer.toNormalizedGrayscale(suitPixels);
+    }
+
+    @Benchmark
+    public boolean backgroundProbe() {
+        return TemplateCardRecognizer.isBackground(image, origin, layout.backgroundProbe(), 0);
+    }
+
+    @Benchmark
+    public int[] extractValueArea() {
+        return TemplateCardRecognizer.getAreaPixels(image, origin, layout.valueArea(), SampleImageCardRecognizer.VALUE_SIZE, 0);
+    }
+
+    @Benchmark
+    public long[] normalizeValue() {
+        return SampleImageCardRecognizer.toNormalizedGrayscale(valuePixels, RasterKernel.forCurrentThread().glyph(valuePixels.length));
+    }
+
+    @Benchmark
+    public long[] normalizeSuit() {
+        return SampleImageCardRecognizer.toNormalizedGrayscale(suitPixels, RasterKernel.forCurrentThread().glyph(suitPixels.length));
+    }
+
+    @Benchmark
+    public GlyphMatch matchValue() {
+        return SampleImageCardRecognizer.VALUE_MATCHER.closest(valueGlyph);
+    }
+
+    @Benchmark
+    public GlyphMatch matchValueExhaustive() {
+        return BinaryGlyphs.closest(valueGlyph, SampleImageCardRecognizer.VALUES_TO_SAMPLE);
+    }
+
+    @Benchmark
+    public GlyphMatch matchSuit() {
+        return SampleImageCardRecognizer.SUIT_MATCHER.closest(suitGlyph);
+    }
+
+    @Benchmark
+    public GlyphMatch matchSuitExhaustive() {
+        return BinaryGlyphs.closest(suitGlyph, SampleImageCardRecognizer.SUITS_TO_SAMPLE);
+    }
+
+    @Benchmark
+    public String recognize() {
+        return SampleImageCardRecognizer.ENGINE.recognize(image, origin, layout);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.gdomo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long {@link FolderWatcher} takes from a screenshot starting to land in the watched folder to its cards
+ * being handed over, against the target of 5 ms at p99. Screenshots are written one at a time into a temporary folder,
+ * each after the previous one was recognized, so the latency includes the watch service delivering the events,
+ * checking the PNG trailer, decoding and recognizing, but no queueing behind other files.
+ * <p>
+ * {@code WatchLatencyReport <engine> [folder] [--rounds N] [--warmup N]}: the screenshots of the folder, which defaults
+ * to {@code brainshells.fixtures}, are written {@code --warmup} times (1 by default) before the {@code --rounds}
+ * measured passes (1 by default).
+ */
+public class WatchLatencyReport {
+    private static final String FOLDER = System.getProperty("brainshells.fixtures", "../java_test_task/imgs_marked");
+    private static final long TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private record Landed(String name, long nanos) {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: WatchLatencyReport <key-pixel|sample-image|rendered-image|rendered-feature|cascade> [folder] [--rounds N] [--warmup N]");
+            System.exit(2);
+        }
+        String folder = FOLDER;
+        int rounds = 1;
+        int warmup = 1;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rounds" -> rounds = Integer.parseInt(args[++i]);
+                case "--warmup" -> warmup = Integer.parseInt(args[++i]);
+                default -> folder = args[i];
+            }
+        }
+
+        final HandRecognizer recognizer;
+        final CardStripDecoder decoder;
+        switch (args[0]) {
+            case "key-pixel" -> {
+                recognizer = KeyPixelCardRecognizer.ENGINE;
+                decoder = KeyPixelCardRecognizer.STRIP_DECODER;
+            }
+            case "sample-image" -> {
+                recognizer = SampleImageCardRecognizer.ENGINE;
+                decoder = SampleImageCardRecognizer.STRIP_DECODER;
+            }
+            case "rendered-image" -> {
+                recognizer = RenderedImageCardRecognizer.ENGINE;
+                decoder = RenderedImageCardRecognizer.STRIP_DECODER;
+            }
+            case "rendered-feature" -> {
+                recognizer = RenderedFeatureCardRecognizer.ENGINE;
+                decoder = RenderedFeatureCardRecognizer.STRIP_DECODER;
+            }
+            case "cascade" -> {
+                recognizer = CascadeCardRecognizer.ENGINE;
+                decoder = CascadeCardRecognizer.STRIP_DECODER;
+            }
+            default -> throw new IllegalArgumentException("Unknown engine: " + args[0]);
+        }
+
+        final List<byte[]> screenshots = read(folder);
+        final Path watched = Files.createTempDirectory("brainshells-watch");
+        final BlockingQueue<Landed> recognized = new LinkedBlockingQueue<>();
+        final Thread watcher = new Thread(() -> {
+            try {
+                FolderWatcher.watch(watched.toString(), recognizer, decoder, (file, cards) -> recognized.add(new Landed(file.getName(), System.nanoTime())));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } catch (InterruptedException e) {
+                // measured
+            }
+        }, "folder-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+
+        try {
+            awaitWatching(watched, screenshots.get(0), recognized);
+            for (int round = 0; round < warmup; round++) {
+                land(watched, "warmup-" + round, screenshots, recognized);
+            }
+            final long[] latencies = new long[screenshots.size() * rounds];
+            for (int round = 0; round < rounds; round++) {
+                final long[] roundLatencies = land(watched, "round-" + round, screenshots, recognized);
+                System.arraycopy(roundLatencies, 0, latencies, round * screenshots.size(), roundLatencies.length);
+            }
+            Arrays.sort(latencies);
+
+            final long p99 = percentile(latencies, 99);
+            System.out.printf(Locale.ROOT, "%s: %d screenshots, latency p50 %d us, p99 %d us, max %d us, %s the %d us p99 target%n",
+                    args[0], latencies.length, percentile(latencies, 50) / 1000, p99 / 1000, latencies[latencies.length - 1] / 1000,
+                    p99 < TARGET_NANOS ? "within" : "above", TARGET_NANOS / 1000);
+        } finally {
+            watcher.interrupt();
+            try (Stream<Path> files = Files.list(watched)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(watched);
+        }
+    }
+
+    private static List<byte[]> read(String folder) throws IOException {
+        final File[] files = Optional.ofNullable(new File(folder).listFiles((dir, name) -> name.endsWith(".png"))).orElse(new File[0]);
+        if (files.length == 0) {
+            throw new IllegalArgumentException("No screenshots in " + folder);
+        }
+        Arrays.sort(files);
+        final List<byte[]> screenshots = new ArrayList<>(files.length);
+        for (File file : files) {
+            screenshots.add(Files.readAllBytes(file.toPath()));
+        }
+        return screenshots;
+    }
+
+    /**
+     * Writes a screenshot until one is recognized, the watcher thread registers with the watch service some time after
+     * it starts.
+     */
+    private static void awaitWatching(Path watched, byte[] screenshot, BlockingQueue<Landed> recognized) throws IOException, InterruptedException {
+        for (int attempt = 0; attempt < TIMEOUT_SECONDS * 10; attempt++) {
+            Files.write(watched.resolve("start-" + attempt + ".png"), screenshot);
+            if (recognized.poll(100, TimeUnit.MILLISECONDS) != null) {
+                // later attempts may still be recognized
+                Thread.sleep(100);
+                recognized.clear();
+                return;
+            }
+        }
+        throw new IllegalStateException("Nothing recognized in " + watched + " within " + TIMEOUT_SECONDS + " s");
+    }
+
+    /**
+     * @return latencies of the screenshots, from starting to write each to its cards
+     */
+    private static long[] land(Path watched, String prefix, List<byte[]> screenshots, BlockingQueue<Landed> recognized) throws IOException, InterruptedException {
+        final long[] latencies = new long[screenshots.size()];
+        for (int i = 0; i < screenshots.size(); i++) {
+            final String name = prefix + "-" + i + ".png";
+            final long started = System.nanoTime();
+            Files.write(watched.resolve(name), screenshots.get(i));
+            final Landed landed = recognized.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (landed == null || !landed.name().equals(name)) {
+                throw new IllegalStateException("Expected " + name + " to be recognized, got " + landed);
+            }
+            latencies[i] = landed.nanos() - started;
+        }
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.max(0, (int) Math.ceil(percentile / 100 * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,7 @@
+@echo off
+where "java" >nul 2>nul
+if %ERRORLEVEL%==0 (
+   java -cp cascade-solution.jar com.example.gdomo.CascadeCardRecognizer %*
+) else (
+   "%JAVA_HOME%\bin\java" -cp cascade-solution.jar com.example.gdomo.CascadeCardRecognizer %*
+)
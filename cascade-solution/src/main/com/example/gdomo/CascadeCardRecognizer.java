@@ -0,0 +1,54 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.BiConsumer;
+
+/**
+ * Recognizes every card with the cheap key pixel probes first and asks a template matching engine only about the cards
+ * whose probes came too close to the threshold. The fallback engine is chosen with {@code brainshells.cascade.fallback}
+ * ({@code sample-image}, {@code rendered-image} or {@code rendered-feature}), the escalation threshold with
+ * {@code brainshells.cascade.minConfidence}. Tables in a layout whose areas the key pixel trees do not fit, which the
+ * key pixel engine refuses, go to the fallback engine right away.
+ */
+public class CascadeCardRecognizer {
+    private static final String NAME = "cascade";
+
+    private static final double MIN_CONFIDENCE = Double.parseDouble(System.getProperty("brainshells.cascade.minConfidence", "0.1"));
+
+    private static final CardSlotRecognizer FALLBACK = switch (System.getProperty("brainshells.cascade.fallback", "sample-image")) {
+        case "sample-image" -> SampleImageCardRecognizer.ENGINE;
+        case "rendered-image" -> RenderedImageCardRecognizer.ENGINE;
+        case "rendered-feature" -> RenderedFeatureCardRecognizer.ENGINE;
+        default -> throw new IllegalArgumentException("Unknown fallback engine: " + System.getProperty("brainshells.cascade.fallback"));
+    };
+
+    // every engine reads the same rows of the screenshot
+    static final CardStripDecoder STRIP_DECODER = KeyPixelCardRecognizer.STRIP_DECODER;
+
+    public static final CardEngine ENGINE = new CardEngine(NAME, STRIP_DECODER, CascadeCardRecognizer::recognizeCard);
+    private static final RecognitionMetrics METRICS = ENGINE.metrics();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ENGINE.run(args);
+    }
+
+    public static void recognizeCards(String folder, BiConsumer<File, String> onRecognized) throws IOException {
+        ENGINE.recognizeCards(folder, onRecognized);
+    }
+
+    private static Card recognizeCard(BufferedImage image, Point origin, TableLayout layout, int slot) {
+        if (KeyPixelCardRecognizer.probesUnscaled(layout)) {
+            final Card card = KeyPixelCardRecognizer.recognizeCard(image, origin, layout, slot);
+            if (card == null || card.confidence() >= MIN_CONFIDENCE) {
+                return card;
+            }
+        }
+        final long started = RecognitionMetrics.now();
+        final Card checked = FALLBACK.recognizeCard(image, origin, layout, slot);
+        METRICS.record(RecognitionMetrics.Stage.FALLBACK, started);
+        return checked;
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.gdomo;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes results on a thread of its own, in batches, so a slow console or disk delays neither recognition nor the
+ * thread handing results over. Results queue up to {@code capacity}, a full queue blocks the caller rather than growing
+ * the heap, but only while the writer runs: once it failed, results are refused. The stream is flushed whenever the
+ * queue runs empty and on {@link #close()}, but not closed.
+ * <p>
+ * {@link Format#BINARY} is big-endian: magic {@code BSRR}, format version, then for every result the source, the
+ * table as an int and the card count as a byte followed by every card as its slot as a byte, value, suit, confidence
+ * as a float and engine. Strings are a short byte length followed by UTF-8 bytes.
+ */
+public class AsyncResultSink implements ResultSink {
+    private static final int MAGIC = 0x42535252;
+    // version 1 wrote the suit as a single byte
+    private static final int VERSION = 2;
+    private static final int BATCH = 256;
+    private static final RecognitionResult END = new RecognitionResult("", List.of());
+
+    public enum Format {
+        /**
+         * {@code name - cards}, as the recognizers print results, or {@code name #table - cards}.
+         */
+        TEXT,
+        /**
+         * A header, then a row per card: source, table, slot, value, suit, confidence and engine. A result without
+         * cards is a row with the card columns empty.
+         */
+        CSV,
+        /**
+         * A JSON object per result with its source, table and array of cards.
+         */
+        JSONL,
+        BINARY;
+
+        public static Format parse(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final DataOutputStream out;
+    private final Format format;
+    private final BlockingQueue<RecognitionResult> queue;
+    private final Thread writer;
+    private volatile IOException error;
+    private boolean closed;
+
+    public AsyncResultSink(OutputStream out, Format format) {
+        this(out, format, 4096);
+    }
+
+    public AsyncResultSink(OutputStream out, Format format, int capacity) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.format = format;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::writeQueued, "result-sink");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void accept(RecognitionResult result) {
+        try {
+            if (error == null && offer(result)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while handing over a result", e);
+        }
+        throw new UncheckedIOException("Could not write results", error != null ? error : new IOException("Result writer stopped"));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                offer(END);
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing results");
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * @return whether the result was queued, {@code false} once the writer stopped and nothing takes from the queue
+     */
+    private boolean offer(RecognitionResult result) throws InterruptedException {
+        while (!queue.offer(result, 100, TimeUnit.MILLISECONDS)) {
+            if (!writer.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeQueued() {
+        final List<RecognitionResult> batch = new ArrayList<>(BATCH);
+        try {
+            writeHeader();
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, BATCH - 1);
+                for (RecognitionResult result : batch) {
+                    if (result == END) {
+                        out.flush();
+                        return;
+                    }
+                    write(result);
+                }
+                batch.clear();
+                if (queue.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            error = new InterruptedIOException("Result writer interrupted");
+        } catch (Throwable e) {
+            error = e instanceof IOException io ? io : new IOException("Could not write results", e);
+            // callers blocked on a full queue go on and fail on their next result
+            discardQueued();
+        }
+    }
+
+    private void discardQueued() {
+        try {
+            while (queue.take() != END) {
+                // results after a failed write are lost either way
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        switch (format) {
+            case CSV -> writeText("source,table,slot,value,suit,confidence,engine\n");
+            case BINARY -> {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void write(RecognitionResult result) throws IOException {
+        switch (format) {
+            case TEXT -> writeText(result.source() + (result.table() < 0 ? "" : " #" + result.table()) + " - " + result.description() + "\n");
+            case CSV -> writeCsv(result);
+            case JSONL -> writeJson(result);
+            case BINARY -> writeBinary(result);
+        }
+    }
+
+    private void writeCsv(RecognitionResult result) throws IOException {
+        final String prefix = csv(result.source()) + "," + result.table() + ",";
+        if (result.cards().isEmpty()) {
+            writeText(prefix + ",,,,\n");
+            return;
+        }
+        final StringBuilder rows = new StringBuilder();
+        for (Card card : result.cards()) {
+            rows.append(prefix).append(card.slot()).append(',').append(card.value()).append(',').append(card.suit())
+                    .append(',').append(card.confidence()).append(',').append(card.engine()).append('\n');
+        }
+        writeText(rows.toString());
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private void writeJson(RecognitionResult result) throws IOException {
+        final StringBuilder json = new StringBuilder("{\"source\":");
+        appendJsonString(json, result.source());
+        json.append(",\"table\":").append(result.table()).append(",\"cards\":[");
+        String separator = "";
+        for (Card card : result.cards()) {
+            json.append(separator).append("{\"slot\":").append(card.slot()).append(",\"value\":\"").append(card.value())
+                    .append("\",\"suit\":\"").append(card.suit()).append("\",\"confidence\":").append(card.confidence())
+                    .append(",\"engine\":\"").append(card.engine()).append("\"}");
+            separator = ",";
+        }
+        writeText(json.append("]}\n").toString());
+    }
+
+    private static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private void writeBinary(RecognitionResult result) throws IOException {
+        writeString(result.source());
+        out.writeInt(result.table());
+        out.writeByte(result.cards().size());
+        for (Card card : result.cards()) {
+            out.writeByte(card.slot());
+            writeString(card.value());
+            writeString(card.suit());
+            out.writeFloat((float) card.confidence());
+            writeString(card.engine());
+        }
+    }
+
+    private void writeText(String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeString(String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
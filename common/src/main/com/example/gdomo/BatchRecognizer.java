@@ -0,0 +1,174 @@
+package com.example.gdomo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+/**
+ * Two-stage pipeline: images are decoded on one pool and recognized on another.
+ * At most {@code capacity} images are in flight (decoded or being decoded, but not yet delivered),
+ * so a slow recognition stage or callback stalls decoding instead of filling the heap.
+ * Callbacks are always invoked on the calling thread.
+ */
+public class BatchRecognizer {
+    private final HandRecognizer recognizer;
+    private final CardStripDecoder decoder;
+    private final int decodeThreads;
+    private final int recognitionThreads;
+    private final int capacity;
+
+    private record Result<T>(int index, T input, List<Card> cards, Throwable error) {
+    }
+
+    private interface Decoding<T> {
+        TableImage decode(T input) throws IOException;
+    }
+
+    public BatchRecognizer(HandRecognizer recognizer, CardStripDecoder decoder, int decodeThreads, int recognitionThreads) {
+        this(recognizer, decoder, decodeThreads, recognitionThreads, 2 * (decodeThreads + recognitionThreads));
+    }
+
+    public BatchRecognizer(HandRecognizer recognizer, CardStripDecoder decoder, int decodeThreads, int recognitionThreads, int capacity) {
+        if (decodeThreads < 1 || recognitionThreads < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Thread counts and capacity must be positive");
+        }
+        this.recognizer = recognizer;
+        this.decoder = decoder;
+        this.decodeThreads = decodeThreads;
+        this.recognitionThreads = recognitionThreads;
+        this.capacity = capacity;
+    }
+
+    public void recognizeOrdered(File[] files, BiConsumer<File, List<Card>> onRecognized) throws IOException {
+        recognize(files, onRecognized, true);
+    }
+
+    public void recognizeUnordered(File[] files, BiConsumer<File, List<Card>> onRecognized) throws IOException {
+        recognize(files, onRecognized, false);
+    }
+
+    /**
+     * Hands the results over to {@code sink}, named after their files, see {@link AsyncResultSink}.
+     */
+    public void recognize(File[] files, ResultSink sink, boolean ordered) throws IOException {
+        recognize(files, (file, cards) -> sink.accept(new RecognitionResult(file.getName(), cards)), ordered);
+    }
+
+    /**
+     * Recognizes the PNG screenshots of the archive, named by their paths within it. Tar entries are read on the
+     * calling thread while earlier ones are decoded and recognized.
+     */
+    public void recognize(ScreenshotArchive archive, BiConsumer<String, List<Card>> onRecognized, boolean ordered) throws IOException {
+        recognize(iterator(archive), entry -> entry.decode(decoder), (entry, cards) -> onRecognized.accept(entry.name(), cards), ordered);
+    }
+
+    public void recognize(ScreenshotArchive archive, ResultSink sink, boolean ordered) throws IOException {
+        recognize(archive, (name, cards) -> sink.accept(new RecognitionResult(name, cards)), ordered);
+    }
+
+    private void recognize(File[] files, BiConsumer<File, List<Card>> onRecognized, boolean ordered) throws IOException {
+        recognize(Arrays.asList(files).iterator(), decoder::decode, onRecognized, ordered);
+    }
+
+    private static Iterator<ScreenshotArchive.Entry> iterator(ScreenshotArchive archive) throws IOException {
+        try {
+            return archive.iterator();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private <T> void recognize(Iterator<T> inputs, Decoding<T> decoding, BiConsumer<T, List<Card>> onRecognized, boolean ordered) throws IOException {
+        final ExecutorService decodePool = Executors.newFixedThreadPool(decodeThreads);
+        final ExecutorService recognitionPool = Executors.newFixedThreadPool(recognitionThreads);
+        final Semaphore inFlight = new Semaphore(capacity);
+        final BlockingQueue<Result<T>> results = new LinkedBlockingQueue<>();
+        final Map<Integer, Result<T>> pending = new HashMap<>();
+
+        try {
+            int submitted = 0;
+            int delivered = 0;
+            boolean exhausted = false;
+            while (true) {
+                if (!exhausted && inFlight.tryAcquire()) {
+                    if (hasNext(inputs)) {
+                        final int index = submitted++;
+                        final T input = inputs.next();
+                        decodePool.execute(() -> decode(index, input, decoding, recognitionPool, results));
+                        continue;
+                    }
+                    inFlight.release();
+                    exhausted = true;
+                }
+                if (exhausted && delivered == submitted) {
+                    break;
+                }
+
+                final Result<T> result = results.take();
+                if (result.error() instanceof IOException e) {
+                    throw e;
+                } else if (result.error() != null) {
+                    throw new RuntimeException(result.error());
+                }
+
+                if (!ordered) {
+                    onRecognized.accept(result.input(), result.cards());
+                    delivered++;
+                    inFlight.release();
+                    continue;
+                }
+
+                pending.put(result.index(), result);
+                Result<T> next;
+                while ((next = pending.remove(delivered)) != null) {
+                    onRecognized.accept(next.input(), next.cards());
+                    delivered++;
+                    inFlight.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while recognizing cards", e);
+        } finally {
+            decodePool.shutdownNow();
+            recognitionPool.shutdownNow();
+        }
+    }
+
+    private static boolean hasNext(Iterator<?> inputs) throws IOException {
+        try {
+            return inputs.hasNext();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private <T> void decode(int index, T input, Decoding<T> decoding, ExecutorService recognitionPool, BlockingQueue<Result<T>> results) {
+        final TableImage table;
+        try {
+            table = decoding.decode(input);
+        } catch (IOException | RuntimeException e) {
+            results.add(new Result<>(index, input, null, e));
+            return;
+        }
+
+        recognitionPool.execute(() -> {
+            try {
+                results.add(new Result<>(index, input, recognizer.recognizeHand(table.image(), table.origin(), table.layout()), null));
+            } catch (RuntimeException e) {
+                results.add(new Result<>(index, input, null, e));
+            }
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.gdomo;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+
+/**
+ * Binarized glyphs packed row-major into {@code long[]}, one bit per pixel, set for dark pixels.
+ * The distance between two glyphs of the same size is the number of differing pixels.
+ * <p>
+ * Binarizing runs in SIMD lanes when the JVM has the {@code jdk.incubator.vector} module
+ * ({@code --add-modules jdk.incubator.vector}), {@code -Dbrainshells.vector=false} keeps it scalar.
+ */
+public class BinaryGlyphs {
+    private static final boolean VECTORIZED = !"false".equals(System.getProperty("brainshells.vector"))
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent() && VectorGlyphs.supported();
+
+    public static long[] allocate(int pixels) {
+        return new long[(pixels + 63) >>> 6];
+    }
+
+    public static void setDark(long[] glyph, int index) {
+        glyph[index >>> 6] |= 1L << index;
+    }
+
+    public static boolean isDark(long[] glyph, int index) {
+        return (glyph[index >>> 6] & 1L << index) != 0;
+    }
+
+    public static long[] pack(BufferedImage binarized) {
+        return pack(binarized.getRGB(0, 0, binarized.getWidth(), binarized.getHeight(), null, 0, binarized.getWidth()), binarized.getWidth(), binarized.getHeight());
+    }
+
+    public static long[] pack(int[] binarizedArgb, int width, int height) {
+        return pack(binarizedArgb, width, height, allocate(width * height));
+    }
+
+    /**
+     * @param glyph cleared glyph to pack into
+     */
+    public static long[] pack(int[] binarizedArgb, int width, int height, long[] glyph) {
+        for (int i = 0; i < width * height; i++) {
+            if ((binarizedArgb[i] & 0xFF) < 0x80) {
+                setDark(glyph, i);
+            }
+        }
+        return glyph;
+    }
+
+    /**
+     * Sets the pixels darker than the middle between the darkest and the lightest gray.
+     *
+     * @param glyph cleared glyph to binarize into
+     */
+    public static long[] binarize(int[] argb, long[] glyph) {
+        if (VECTORIZED) {
+            return VectorGlyphs.binarize(argb, glyph);
+        }
+
+        int max = Integer.MIN_VALUE;
+        int min = Integer.MAX_VALUE;
+        for (int rgb : argb) {
+            final int gray = gray(rgb);
+            max = Math.max(max, gray);
+            min = Math.min(min, gray);
+        }
+
+        final int threshold = (max + min) / 2;
+        for (int i = 0; i < argb.length; i++) {
+            if (gray(argb[i]) < threshold) {
+                setDark(glyph, i);
+            }
+        }
+        return glyph;
+    }
+
+    public static int gray(int argb) {
+        return ((argb >> 16 & 0xFF) + (argb >> 8 & 0xFF) + (argb & 0xFF)) / 3;
+    }
+
+    public static int distance(long[] a, long[] b) {
+        int distance = 0;
+        for (int i = 0; i < a.length; i++) {
+            distance += Long.bitCount(a[i] ^ b[i]);
+        }
+        return distance;
+    }
+
+    public static GlyphMatch closest(long[] target, Map<String, long[]> candidates) {
+        String closestKey = null;
+        int closestDistance = Integer.MAX_VALUE;
+        int secondDistance = Integer.MAX_VALUE;
+        for (Map.Entry<String, long[]> candidate : candidates.entrySet()) {
+            final int distance = distance(target, candidate.getValue());
+            if (distance < closestDistance) {
+                closestKey = candidate.getKey();
+                secondDistance = closestDistance;
+                closestDistance = distance;
+            } else if (distance < secondDistance) {
+                secondDistance = distance;
+            }
+        }
+        return new GlyphMatch(closestKey, closestDistance, secondDistance);
+    }
+}
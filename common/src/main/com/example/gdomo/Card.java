@@ -0,0 +1,21 @@
+package com.example.gdomo;
+
+import java.util.List;
+
+/**
+ * A recognized card in table slot {@code slot}, counted from the left. Confidence is in {@code [0, 1]},
+ * {@code engine} names the recognizer that produced the card.
+ */
+public record Card(int slot, String value, String suit, double confidence, String engine) {
+    public String description() {
+        return value + suit;
+    }
+
+    public static String describe(List<Card> cards) {
+        final StringBuilder descriptionBuilder = new StringBuilder();
+        for (Card card : cards) {
+            descriptionBuilder.append(card.value()).append(card.suit());
+        }
+        return descriptionBuilder.toString();
+    }
+}
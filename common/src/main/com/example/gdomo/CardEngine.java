@@ -0,0 +1,125 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * The ways to run a recognizer, the same for every engine: folders one screenshot after another or in a
+ * {@link BatchRecognizer}, watched folders, the command line of {@link CardRecognizerCli}, and whole tables of
+ * images, pixel arrays and buffers. An engine brings only how it recognizes the card of one slot.
+ */
+public class CardEngine implements HandRecognizer, CardSlotRecognizer {
+    private final String name;
+    private final CardStripDecoder decoder;
+    private final CardSlotRecognizer slotRecognizer;
+    private final RecognitionMetrics metrics;
+
+    /**
+     * @param name names the cards, metrics and caches of the engine
+     */
+    public CardEngine(String name, CardStripDecoder decoder, CardSlotRecognizer slotRecognizer) {
+        this.name = name;
+        this.decoder = decoder;
+        this.slotRecognizer = slotRecognizer;
+        this.metrics = RecognitionMetrics.forComponent(name);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public CardStripDecoder decoder() {
+        return decoder;
+    }
+
+    public RecognitionMetrics metrics() {
+        return metrics;
+    }
+
+    public void run(String[] args) throws IOException, InterruptedException {
+        CardRecognizerCli.run(args, this, this, decoder);
+    }
+
+    public void recognizeCards(String folder, BiConsumer<File, String> onRecognized) throws IOException {
+        final File[] files = Optional.ofNullable(new File(folder).listFiles()).orElse(new File[0]);
+        for (File file : files) {
+            final TableImage table = decoder.decode(file);
+            onRecognized.accept(file, recognize(table.image(), table.origin(), table.layout()));
+        }
+    }
+
+    public void recognizeCards(String folder, BiConsumer<File, String> onRecognized, int decodeThreads, int recognitionThreads, boolean ordered) throws IOException {
+        final File[] files = Optional.ofNullable(new File(folder).listFiles()).orElse(new File[0]);
+        final BatchRecognizer batchRecognizer = new BatchRecognizer(this, decoder, decodeThreads, recognitionThreads);
+        if (ordered) {
+            batchRecognizer.recognizeOrdered(files, (file, cards) -> onRecognized.accept(file, Card.describe(cards)));
+        } else {
+            batchRecognizer.recognizeUnordered(files, (file, cards) -> onRecognized.accept(file, Card.describe(cards)));
+        }
+    }
+
+    public void watchCards(String folder, BiConsumer<File, String> onRecognized) throws IOException, InterruptedException {
+        FolderWatcher.watch(folder, this, decoder, (file, cards) -> onRecognized.accept(file, Card.describe(cards)));
+    }
+
+    public String recognize(BufferedImage image) {
+        return Card.describe(recognizeHand(image));
+    }
+
+    /**
+     * Recognizes a table in the default layout.
+     */
+    public String recognize(BufferedImage image, Point origin) {
+        return recognize(image, origin, TableLayout.DEFAULT);
+    }
+
+    public String recognize(BufferedImage image, Point origin, TableLayout layout) {
+        return Card.describe(recognizeHand(image, origin, layout));
+    }
+
+    public List<Card> recognizeHand(BufferedImage image) {
+        return recognizeHand(image, new Point(0, 0), TableLayouts.forImage(image));
+    }
+
+    public List<Card> recognizeHand(int[] argb, int width, int height) {
+        return recognizeHand(Rasters.wrapArgb(argb, width, height));
+    }
+
+    public List<Card> recognizeHand(ByteBuffer pixels, int width, int height, int stride, Rasters.PixelLayout layout) {
+        return recognizeHand(Rasters.wrap(pixels, width, height, stride, layout));
+    }
+
+    public List<Card> recognizeHand(BufferedImage image, Point origin) {
+        return recognizeHand(image, origin, TableLayout.DEFAULT);
+    }
+
+    @Override
+    public List<Card> recognizeHand(BufferedImage image, Point origin, TableLayout layout) {
+        final List<Card> cards = new ArrayList<>(layout.cardSlots());
+        try {
+            for (int slot = 0; slot < layout.cardSlots(); slot++) {
+                final Card card = slotRecognizer.recognizeCard(image, origin, layout, slot);
+                if (card == null) {
+                    break;
+                }
+                cards.add(card);
+            }
+        } finally {
+            RasterKernel.release();
+        }
+        metrics.recordHand(cards);
+        return cards;
+    }
+
+    @Override
+    public Card recognizeCard(BufferedImage image, Point origin, TableLayout layout, int slot) {
+        return slotRecognizer.recognizeCard(image, origin, layout, slot);
+    }
+}
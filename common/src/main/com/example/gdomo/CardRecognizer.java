@@ -0,0 +1,9 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+@FunctionalInterface
+public interface CardRecognizer {
+    String recognize(BufferedImage image, Point origin, TableLayout layout);
+}
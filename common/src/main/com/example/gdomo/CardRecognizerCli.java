@@ -0,0 +1,149 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Results are written by an {@link AsyncResultSink}, in the format of {@code --format text|csv|jsonl|binary}
+ * ({@code text} by default) to standard output or the file of {@code --output}. Screenshots are read from a folder or
+ * from a {@code .zip}, {@code .tar}, {@code .tar.gz} or {@code .tgz} archive, named by their paths within it. Frames of
+ * a {@code .frames} {@link FrameDump} are named by their index, and slices of it are recognized in parallel, so their
+ * results interleave. With {@code --session} the files are frames of one table and only the changes of its cards are
+ * written, see {@link TableSession}. With {@code --serve} the folder only warms up a {@link RecognitionDaemon}, which
+ * reads requested files from the folder, or from {@code brainshells.daemon.root} when that is set.
+ */
+public class CardRecognizerCli {
+    /**
+     * @param slotRecognizer recognizes single slots for {@code --session}
+     */
+    public static void run(String[] args, HandRecognizer recognizer, CardSlotRecognizer slotRecognizer, CardStripDecoder decoder) throws IOException, InterruptedException {
+        final String folder = args[0];
+
+        boolean watch = false;
+        boolean session = false;
+        String serveAddress = null;
+        boolean ordered = true;
+        String grid = null;
+        String tables = null;
+        AsyncResultSink.Format format = AsyncResultSink.Format.TEXT;
+        Path output = null;
+        int decodeThreads = Runtime.getRuntime().availableProcessors();
+        int recognitionThreads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--watch" -> watch = true;
+                case "--session" -> session = true;
+                case "--serve" -> serveAddress = args[++i];
+                case "--unordered" -> ordered = false;
+                case "--grid" -> grid = args[++i];
+                case "--tables" -> tables = args[++i];
+                case "--format" -> format = AsyncResultSink.Format.parse(args[++i]);
+                case "--output" -> output = Path.of(args[++i]);
+                case "--decode-threads" -> decodeThreads = Integer.parseInt(args[++i]);
+                case "--recognition-threads" -> recognitionThreads = Integer.parseInt(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        final File[] files = Optional.ofNullable(new File(folder).listFiles()).orElse(new File[0]);
+        if (serveAddress != null) {
+            // screenshots in the folder only warm up the JIT
+            new BatchRecognizer(recognizer, decoder, decodeThreads, recognitionThreads).recognizeUnordered(files, (file, cards) -> {
+            });
+            System.out.println("Serving on " + serveAddress);
+            RecognitionDaemon.serve(serveAddress, Path.of(System.getProperty("brainshells.daemon.root", folder)), recognizer.describing(), decoder);
+            return;
+        }
+
+        final OutputStream out = output != null ? Files.newOutputStream(output) : System.out;
+        if (session) {
+            try {
+                recognizeSession(files, slotRecognizer, decoder, out);
+            } finally {
+                if (output != null) {
+                    out.close();
+                }
+            }
+            return;
+        }
+        try (AsyncResultSink sink = new AsyncResultSink(out, format)) {
+            if (grid != null || tables != null) {
+                recognizeMosaics(files, recognizer, grid, tables, recognitionThreads, sink);
+            } else if (FrameDump.isFrameDump(Path.of(folder))) {
+                FrameDump.open(Path.of(folder)).recognize(recognizer, recognitionThreads,
+                        (frame, cards) -> sink.accept(new RecognitionResult(Long.toString(frame), cards)));
+            } else if (ScreenshotArchive.isArchive(Path.of(folder))) {
+                try (ScreenshotArchive archive = ScreenshotArchive.open(Path.of(folder))) {
+                    new BatchRecognizer(recognizer, decoder, decodeThreads, recognitionThreads).recognize(archive, sink, ordered);
+                }
+            } else if (watch) {
+                FolderWatcher.watch(folder, recognizer, decoder, (file, cards) -> sink.accept(new RecognitionResult(file.getName(), cards)));
+            } else {
+                new BatchRecognizer(recognizer, decoder, decodeThreads, recognitionThreads).recognize(files, sink, ordered);
+            }
+        } finally {
+            if (output != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * The files are frames of one table in the order of their names, only the changes of its cards are written, a line
+     * per change such as {@code <file> - card 4 appeared: Qs}.
+     */
+    private static void recognizeSession(File[] files, CardSlotRecognizer recognizer, CardStripDecoder decoder, OutputStream out) throws IOException {
+        Arrays.sort(files);
+        final TableSession session = new TableSession(recognizer);
+        final PrintStream printer = new PrintStream(new BufferedOutputStream(out, 1 << 16), false, StandardCharsets.UTF_8);
+        for (File file : files) {
+            final TableImage table = decoder.decode(file);
+            for (TableSession.CardChange change : session.next(table.image(), table.origin(), table.layout())) {
+                printer.println(file.getName() + " - " + change.description());
+            }
+        }
+        printer.flush();
+    }
+
+    /**
+     * Every file is a capture of several tables: a grid of {@code <columns>x<rows>} equal tables filling it or a list
+     * of table bounds {@code x,y,width,height;...}.
+     */
+    private static void recognizeMosaics(File[] files, HandRecognizer recognizer, String grid, String tables, int threads, ResultSink sink) throws IOException {
+        try (MosaicRecognizer mosaicRecognizer = new MosaicRecognizer(recognizer, threads)) {
+            for (File file : files) {
+                final BufferedImage capture = MosaicRecognizer.decode(file);
+                final List<Rectangle> bounds = tables != null ? parseTables(tables) : parseGrid(grid, capture);
+                final List<List<Card>> results = mosaicRecognizer.recognizeHands(capture, bounds);
+                for (int i = 0; i < results.size(); i++) {
+                    sink.accept(new RecognitionResult(file.getName(), i, results.get(i)));
+                }
+            }
+        }
+    }
+
+    private static List<Rectangle> parseGrid(String grid, BufferedImage capture) {
+        final String[] size = grid.split("x");
+        return MosaicRecognizer.grid(capture.getWidth(), capture.getHeight(), Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+    }
+
+    private static List<Rectangle> parseTables(String tables) {
+        final List<Rectangle> bounds = new ArrayList<>();
+        for (String table : tables.split(";")) {
+            final String[] values = table.split(",");
+            if (values.length != 4) {
+                throw new IllegalArgumentException("Expected x,y,width,height of a table: " + table);
+            }
+            bounds.add(new Rectangle(Integer.parseInt(values[0]), Integer.parseInt(values[1]), Integer.parseInt(values[2]), Integer.parseInt(values[3])));
+        }
+        return bounds;
+    }
+}
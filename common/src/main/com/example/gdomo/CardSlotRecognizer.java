@@ -0,0 +1,12 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+@FunctionalInterface
+public interface CardSlotRecognizer {
+    /**
+     * @return the card in the slot or {@code null} if the slot shows the table background
+     */
+    Card recognizeCard(BufferedImage image, Point origin, TableLayout layout, int slot);
+}
@@ -0,0 +1,234 @@
+package com.example.gdomo;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes only the rows of a PNG screenshot the recognizers read, {@link TableLayout#stripTop()} to
+ * {@link TableLayout#stripBottom()} of the layout for its size. Scanlines above the strip are inflated and unfiltered
+ * but never converted to pixels, and inflating stops once the last row of the strip is done, so the rest of the file is
+ * not even read. Grayscale, interlaced, non 8-bit and non-PNG images fall back to a full {@link ImageIO} decode, as
+ * ImageIO applies a gamma conversion to gray pixels that the recognizers must see unchanged, and so do screenshots of a
+ * size without a layout yet, which are calibrated on, see {@link TableLayouts#forImage(BufferedImage)}.
+ */
+public class CardStripDecoder {
+    private static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+
+    private static final int IHDR = 0x49484452;
+    private static final int PLTE = 0x504C5445;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454E44;
+
+    private static final int RGB = 2;
+    private static final int INDEXED = 3;
+    private static final int RGBA = 6;
+
+    private static final RecognitionMetrics METRICS = RecognitionMetrics.forComponent("decoder");
+
+    public TableImage decode(File file) throws IOException {
+        final long started = RecognitionMetrics.now();
+        final TableImage table = read(file);
+        METRICS.record(RecognitionMetrics.Stage.DECODE, started);
+        return table;
+    }
+
+    public TableImage decode(byte[] png) throws IOException {
+        final long started = RecognitionMetrics.now();
+        final TableImage table = read(png);
+        METRICS.record(RecognitionMetrics.Stage.DECODE, started);
+        return table;
+    }
+
+    private TableImage read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            final TableImage strip = decodeStrip(in);
+            if (strip != null) {
+                return strip;
+            }
+        }
+        return fullImage(ImageIO.read(file), file.toString());
+    }
+
+    private TableImage read(byte[] png) throws IOException {
+        final TableImage strip = decodeStrip(new DataInputStream(new ByteArrayInputStream(png)));
+        return strip != null ? strip : fullImage(ImageIO.read(new ByteArrayInputStream(png)), "in-memory image");
+    }
+
+    private static TableImage fullImage(BufferedImage image, String source) throws IOException {
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + source);
+        }
+        return new TableImage(image, new Point(0, 0), TableLayouts.forImage(image));
+    }
+
+    private TableImage decodeStrip(DataInputStream in) throws IOException {
+        if (in.readLong() != PNG_SIGNATURE) {
+            return null;
+        }
+
+        int width = 0;
+        int top = 0;
+        TableLayout layout = null;
+        int colorType = 0;
+        int bytesPerPixel = 0;
+        int lastRow = 0;
+        int[] palette = new int[256];
+        byte[] chunk = new byte[0];
+
+        byte[] previous = null;
+        byte[] current = null;
+        int filled = 0;
+        int row = 0;
+        BufferedImage strip = null;
+        int[] pixels = null;
+
+        final Inflater inflater = new Inflater();
+        try {
+            while (true) {
+                final int length = in.readInt();
+                final int type = in.readInt();
+                switch (type) {
+                    case IHDR -> {
+                        width = in.readInt();
+                        final int height = in.readInt();
+                        final int bitDepth = in.readUnsignedByte();
+                        colorType = in.readUnsignedByte();
+                        in.skipNBytes(2);
+                        final int interlace = in.readUnsignedByte();
+
+                        bytesPerPixel = switch (colorType) {
+                            case INDEXED -> 1;
+                            case RGB -> 3;
+                            case RGBA -> 4;
+                            default -> 0;
+                        };
+                        layout = TableLayouts.forSize(width, height);
+                        if (layout == null) {
+                            return null;
+                        }
+                        top = layout.stripTop();
+                        lastRow = Math.min(layout.stripBottom(), height) - 1;
+                        if (bitDepth != 8 || interlace != 0 || bytesPerPixel == 0 || lastRow < top) {
+                            return null;
+                        }
+
+                        previous = new byte[1 + width * bytesPerPixel];
+                        current = new byte[previous.length];
+                        strip = new BufferedImage(width, lastRow + 1 - top, colorType == RGBA ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+                        pixels = ((DataBufferInt) strip.getRaster().getDataBuffer()).getData();
+                    }
+                    case PLTE -> {
+                        if (length > 3 * palette.length || length % 3 != 0) {
+                            // not a valid palette, ImageIO reports what is wrong
+                            return null;
+                        }
+                        for (int i = 0; i < length / 3; i++) {
+                            palette[i] = 0xFF000000 | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+                        }
+                    }
+                    case IDAT -> {
+                        if (current == null) {
+                            throw new IOException("PNG image data before header");
+                        }
+                        if (chunk.length < length) {
+                            chunk = new byte[length];
+                        }
+                        in.readFully(chunk, 0, length);
+                        inflater.setInput(chunk, 0, length);
+
+                        while (true) {
+                            final int inflated = inflater.inflate(current, filled, current.length - filled);
+                            if (inflated == 0 && (inflater.needsInput() || inflater.finished() || inflater.needsDictionary())) {
+                                break;
+                            }
+
+                            filled += inflated;
+                            if (filled < current.length) {
+                                continue;
+                            }
+
+                            unfilter(current, previous, bytesPerPixel);
+                            if (row >= top) {
+                                toArgb(current, pixels, (row - top) * width, width, colorType, palette);
+                            }
+                            if (row == lastRow) {
+                                return new TableImage(strip, new Point(0, -top), layout);
+                            }
+
+                            final byte[] swap = previous;
+                            previous = current;
+                            current = swap;
+                            filled = 0;
+                            row++;
+                        }
+                    }
+                    case IEND -> throw new EOFException("PNG image data ends at row " + row);
+                    default -> in.skipNBytes(length);
+                }
+                in.skipNBytes(4); // CRC
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted PNG image data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void unfilter(byte[] current, byte[] previous, int bytesPerPixel) throws IOException {
+        switch (current[0]) {
+            case 0 -> {
+            }
+            case 1 -> {
+                for (int i = 1 + bytesPerPixel; i < current.length; i++) {
+                    current[i] += current[i - bytesPerPixel];
+                }
+            }
+            case 2 -> {
+                for (int i = 1; i < current.length; i++) {
+                    current[i] += previous[i];
+                }
+            }
+            case 3 -> {
+                for (int i = 1; i < current.length; i++) {
+                    final int left = i > bytesPerPixel ? current[i - bytesPerPixel] & 0xFF : 0;
+                    current[i] += (left + (previous[i] & 0xFF)) >> 1;
+                }
+            }
+            case 4 -> {
+                for (int i = 1; i < current.length; i++) {
+                    final int left = i > bytesPerPixel ? current[i - bytesPerPixel] & 0xFF : 0;
+                    final int up = previous[i] & 0xFF;
+                    final int upLeft = i > bytesPerPixel ? previous[i - bytesPerPixel] & 0xFF : 0;
+                    current[i] += paeth(left, up, upLeft);
+                }
+            }
+            default -> throw new IOException("Unknown PNG filter type " + current[0]);
+        }
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        final int estimate = left + up - upLeft;
+        final int toLeft = Math.abs(estimate - left);
+        final int toUp = Math.abs(estimate - up);
+        final int toUpLeft = Math.abs(estimate - upLeft);
+        if (toLeft <= toUp && toLeft <= toUpLeft) {
+            return left;
+        }
+        return toUp <= toUpLeft ? up : upLeft;
+    }
+
+    private static void toArgb(byte[] scanline, int[] pixels, int offset, int width, int colorType, int[] palette) {
+        for (int x = 0, i = 1; x < width; x++) {
+            pixels[offset + x] = switch (colorType) {
+                case INDEXED -> palette[scanline[i++] & 0xFF];
+                case RGB -> 0xFF000000 | (scanline[i++] & 0xFF) << 16 | (scanline[i++] & 0xFF) << 8 | scanline[i++] & 0xFF;
+                default -> (scanline[i++] & 0xFF) << 16 | (scanline[i++] & 0xFF) << 8 | scanline[i++] & 0xFF | (scanline[i++] & 0xFF) << 24;
+            };
+        }
+    }
+}
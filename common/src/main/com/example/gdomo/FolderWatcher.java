@@ -0,0 +1,125 @@
+package com.example.gdomo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Recognizes screenshots as they appear in a folder. Files that are still being written are skipped
+ * until a later modification event delivers them with a complete PNG trailer; files already present
+ * when watching starts are ignored. A file is recognized once per modification time, so a screenshot written over
+ * another one of the same name is recognized again. A screenshot that cannot be decoded or recognized is logged and
+ * skipped until it is written again.
+ */
+public class FolderWatcher {
+    private static final byte[] PNG_TRAILER = new byte[]{0, 0, 0, 0, 'I', 'E', 'N', 'D', (byte) 0xAE, 0x42, 0x60, (byte) 0x82};
+
+    public static void watch(String folder, HandRecognizer recognizer, CardStripDecoder decoder, BiConsumer<File, List<Card>> onRecognized) throws IOException, InterruptedException {
+        final Path folderPath = Path.of(folder);
+        // modification times of the files as they were recognized
+        final Map<Path, FileTime> recognized = new HashMap<>();
+        try (WatchService watchService = folderPath.getFileSystem().newWatchService()) {
+            folderPath.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            while (true) {
+                final WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        // events were lost, only now is it worth looking at the whole folder
+                        try (Stream<Path> files = Files.list(folderPath)) {
+                            files.forEach(file -> tryRecognize(file, recognized, recognizer, decoder, onRecognized));
+                        }
+                        continue;
+                    }
+
+                    final Path file = folderPath.resolve((Path) event.context());
+                    if (event.kind() == ENTRY_DELETE) {
+                        recognized.remove(file);
+                    } else {
+                        tryRecognize(file, recognized, recognizer, decoder, onRecognized);
+                    }
+                }
+
+                if (!key.reset()) {
+                    throw new IOException("Folder is no longer accessible: " + folder);
+                }
+            }
+        }
+    }
+
+    private static void tryRecognize(Path file, Map<Path, FileTime> recognized, HandRecognizer recognizer, CardStripDecoder decoder, BiConsumer<File, List<Card>> onRecognized) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+
+        final FileTime modified;
+        try {
+            modified = Files.getLastModifiedTime(file);
+            if (modified.equals(recognized.get(file)) || !hasPngTrailer(file)) {
+                return;
+            }
+        } catch (IOException e) {
+            // deleted while looking at it
+            System.err.println("Could not read " + file + ": " + e);
+            return;
+        }
+
+        final List<Card> cards;
+        try {
+            final TableImage table = decoder.decode(file.toFile());
+            if (!modified.equals(Files.getLastModifiedTime(file))) {
+                // written to while reading, the event of that write retries
+                return;
+            }
+            cards = recognizer.recognizeHand(table.image(), table.origin(), table.layout());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not recognize " + file + ": " + e);
+            // a broken screenshot fails the same way on every event until it is written again
+            if (unchanged(file, modified)) {
+                recognized.put(file, modified);
+            }
+            return;
+        }
+
+        recognized.put(file, modified);
+        onRecognized.accept(file.toFile(), cards);
+    }
+
+    private static boolean unchanged(Path file, FileTime modified) {
+        try {
+            return modified.equals(Files.getLastModifiedTime(file));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean hasPngTrailer(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < PNG_TRAILER.length) {
+                return false;
+            }
+
+            final ByteBuffer trailer = ByteBuffer.allocate(PNG_TRAILER.length);
+            long position = size - PNG_TRAILER.length;
+            while (trailer.hasRemaining()) {
+                final int read = channel.read(trailer, position);
+                if (read < 0) {
+                    return false;
+                }
+                position += read;
+            }
+            return Arrays.equals(trailer.array(), PNG_TRAILER);
+        }
+    }
+}
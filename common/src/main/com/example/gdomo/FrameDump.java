@@ -0,0 +1,161 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Raw frames a capture process appends to one file, recognized without any PNG encoding and decoding. The file is
+ * memory-mapped and split into slices of consecutive frames recognized in parallel. Each slice shows its frames to the
+ * recognizer through one image that is moved from frame to frame over the mapped card strip rows, so frames are
+ * neither copied nor allocated for, and the rows above and below the strip are never read.
+ * <p>
+ * Big-endian layout: magic {@code BSFD}, format version, frame width, height and stride in bytes, the
+ * {@link Rasters.PixelLayout} of the pixels as its ordinal, then frames of {@code height * stride} bytes up to the end
+ * of the file. A frame still being appended is left out.
+ */
+public class FrameDump {
+    public static final int HEADER_BYTES = 24;
+    private static final int MAGIC = 0x42534644;
+    private static final int VERSION = 1;
+
+    /**
+     * Called on the thread recognizing the slice of the frame, in frame order within the slice.
+     */
+    public interface FrameListener {
+        void recognized(long frame, List<Card> cards);
+    }
+
+    private final Path file;
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final Rasters.PixelLayout pixelLayout;
+    private final long frames;
+
+    private FrameDump(Path file, int width, int height, int stride, Rasters.PixelLayout pixelLayout, long frames) {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+        this.pixelLayout = pixelLayout;
+        this.frames = frames;
+    }
+
+    public static boolean isFrameDump(Path path) {
+        return path.getFileName().toString().endsWith(".frames") && path.toFile().isFile();
+    }
+
+    public static FrameDump open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // a header is read at once unless the file is shorter
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a frame dump: " + file);
+            }
+            final int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported frame dump version " + version);
+            }
+            final int width = header.getInt(8);
+            final int height = header.getInt(12);
+            final int stride = header.getInt(16);
+            final int layout = header.getInt(20);
+            if (layout < 0 || layout >= Rasters.PixelLayout.values().length) {
+                throw new IOException("Unknown pixel layout " + layout + " of " + file);
+            }
+            final Rasters.PixelLayout pixelLayout = Rasters.PixelLayout.values()[layout];
+            if (width <= 0 || height <= 0 || stride < width * pixelLayout.bytesPerPixel()) {
+                throw new IOException(width + "x" + height + " frames with stride " + stride + " in " + file);
+            }
+            return new FrameDump(file, width, height, stride, pixelLayout, (channel.size() - HEADER_BYTES) / ((long) height * stride));
+        }
+    }
+
+    /**
+     * Writes the header the frames are appended to.
+     */
+    public static void writeHeader(OutputStream out, int width, int height, int stride, Rasters.PixelLayout pixelLayout) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(width);
+        data.writeInt(height);
+        data.writeInt(stride);
+        data.writeInt(pixelLayout.ordinal());
+        data.flush();
+    }
+
+    public long frames() {
+        return frames;
+    }
+
+    public void recognize(HandRecognizer recognizer, int threads, FrameListener onRecognized) throws IOException {
+        final int slices = (int) Math.max(1, Math.min(threads, frames));
+        final ExecutorService pool = Executors.newFixedThreadPool(slices);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final List<Future<?>> results = new ArrayList<>(slices);
+            for (int slice = 0; slice < slices; slice++) {
+                final long first = frames * slice / slices;
+                final long end = frames * (slice + 1) / slices;
+                results.add(pool.submit(() -> {
+                    recognize(channel, first, end, recognizer, onRecognized);
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while recognizing frames", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void recognize(FileChannel channel, long first, long end, HandRecognizer recognizer, FrameListener onRecognized) throws IOException {
+        final long frameBytes = (long) height * stride;
+        if (frameBytes > Integer.MAX_VALUE) {
+            throw new IOException("Frames of " + frameBytes + " bytes cannot be mapped");
+        }
+        // a mapping holds at most 2 GB, so long slices are mapped a part at a time
+        final long framesPerMapping = Integer.MAX_VALUE / frameBytes;
+
+        final TableLayout known = TableLayouts.forSize(width, height);
+        final int top = known != null ? known.stripTop() : 0;
+        final int rows = known != null ? Math.min(known.stripBottom(), height) - top : height;
+        final Rasters.ByteBufferView view = new Rasters.ByteBufferView((rows - 1) * stride + width * pixelLayout.bytesPerPixel());
+        final BufferedImage image = Rasters.view(view, width, rows, stride, pixelLayout);
+        final Point origin = new Point(0, -top);
+
+        for (long mapped = first; mapped < end; mapped += framesPerMapping) {
+            final int count = (int) Math.min(framesPerMapping, end - mapped);
+            final MappedByteBuffer frames = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + mapped * frameBytes, count * frameBytes);
+            for (int frame = 0; frame < count; frame++) {
+                view.show(frames, (int) (frame * frameBytes) + top * stride);
+                // frames of a size without a layout yet are shown whole and calibrated on
+                final TableLayout layout = known != null ? known : TableLayouts.forImage(image);
+                onRecognized.recognized(mapped + frame, recognizer.recognizeHand(image, origin, layout));
+            }
+        }
+    }
+}
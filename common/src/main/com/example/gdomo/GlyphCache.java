@@ -0,0 +1,116 @@
+package com.example.gdomo;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the match of every glyph area by a hash of its raw pixels: the same few glyphs come up on screenshot
+ * after screenshot pixel for pixel, and hashing an area is cheaper than comparing it with every template.
+ * <p>
+ * The cache is set-associative: the hash of an area picks a set of {@value #WAYS} slots, and a new area takes a free
+ * slot of its set or evicts a random one. Its size is set with {@code brainshells.glyphCache.size} (slots, rounded up
+ * to a power of two), caching is off by default, so that screenshots that never repeat an area pay nothing for
+ * hashing. With {@code brainshells.glyphCache.verify} a hit also compares the pixels, so that two areas with the same
+ * 64-bit hash never share a match. Hits, misses, evictions and collisions are published with the metrics of the engine,
+ * see {@link RecognitionMetrics#addCache(String, GlyphCache)}.
+ */
+public class GlyphCache {
+    private static final int WAYS = 4;
+
+    private static final int CONFIGURED_SIZE = Integer.getInteger("brainshells.glyphCache.size", 0);
+    private static final boolean CONFIGURED_VERIFY = Boolean.getBoolean("brainshells.glyphCache.verify");
+
+    public interface Matcher {
+        /**
+         * @param argb area pixels, may be changed by the matcher
+         */
+        GlyphMatch match(int[] argb);
+    }
+
+    public record Stats(String name, int size, long hits, long misses, long evictions, long collisions) {
+    }
+
+    private record Entry(long hash, int[] argb, GlyphMatch match) {
+    }
+
+    private final String name;
+    private final boolean verify;
+    private final AtomicReferenceArray<Entry> entries;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+
+    public GlyphCache(String name, int size, boolean verify) {
+        if (size < 0 || size > 1 << 30) {
+            throw new IllegalArgumentException("Glyph cache size out of range: " + size);
+        }
+        this.name = name;
+        this.verify = verify;
+        final int slots = size == 0 ? 0 : Math.max(WAYS, Integer.highestOneBit(size - 1) << 1);
+        this.entries = new AtomicReferenceArray<>(slots);
+        this.mask = slots - 1;
+    }
+
+    /**
+     * @return cache sized by the {@code brainshells.glyphCache} properties
+     */
+    public static GlyphCache configured(String name) {
+        return new GlyphCache(name, CONFIGURED_SIZE, CONFIGURED_VERIFY);
+    }
+
+    public GlyphMatch match(int[] argb, Matcher matcher) {
+        if (entries.length() == 0) {
+            return matcher.match(argb);
+        }
+
+        final long hash = hash(argb);
+        final int set = (int) hash & mask & -WAYS;
+        int victim = -1;
+        for (int slot = set; slot < set + WAYS; slot++) {
+            final Entry entry = entries.get(slot);
+            if (entry == null) {
+                victim = victim < 0 ? slot : victim;
+            } else if (entry.hash() == hash) {
+                if (entry.argb() == null || Arrays.equals(entry.argb(), argb)) {
+                    hits.increment();
+                    return entry.match();
+                }
+                collisions.increment();
+                victim = slot;
+            }
+        }
+
+        misses.increment();
+        final int[] key = verify ? argb.clone() : null;
+        final GlyphMatch match = matcher.match(argb);
+        if (victim < 0) {
+            victim = set + ThreadLocalRandom.current().nextInt(WAYS);
+        }
+        if (entries.getAndSet(victim, new Entry(hash, key, match)) != null) {
+            evictions.increment();
+        }
+        return match;
+    }
+
+    public Stats stats() {
+        return new Stats(name, entries.length(), hits.sum(), misses.sum(), evictions.sum(), collisions.sum());
+    }
+
+    static long hash(int[] argb) {
+        long hash = argb.length;
+        for (int pixel : argb) {
+            hash = Long.rotateLeft((hash ^ pixel) * 0x9E3779B97F4A7C15L, 31);
+        }
+        // the slot is taken from the low bits, every bit of the hash has to reach them
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+}
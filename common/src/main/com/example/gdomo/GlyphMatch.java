@@ -0,0 +1,10 @@
+package com.example.gdomo;
+
+/**
+ * The closest template for a glyph along with the distance to it and to the runner-up.
+ */
+public record GlyphMatch(String key, int distance, int secondDistance) {
+    public double confidence() {
+        return secondDistance == 0 ? 0 : (secondDistance - distance) / (double) secondDistance;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.gdomo;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * {@link BinaryGlyphs#closest(long[], Map)} that can stop at a template close enough instead of comparing the glyph
+ * with every template.
+ * <p>
+ * With an exact distance a template at most that far is accepted right away, provided it is nearer than half the
+ * distance to its nearest other template: then no other template can be closer, so the match is the same. The
+ * runner-up distance of such a match is the lower bound the triangle inequality gives, so its confidence can only be
+ * lower than that of a full search. The templates are tried from the one with the dark pixel count closest to that of
+ * the glyph outwards, as the difference of the counts is a lower bound of the distance: the match usually is the first
+ * template tried. Once the bound reaches the runner-up distance so far the rest are skipped, and comparing with a
+ * template is abandoned as soon as its distance exceeds the runner-up.
+ * <p>
+ * Without an exact distance every template is compared in full. Which is faster depends on the templates and glyphs,
+ * so an engine picks it by measuring both on the fixtures.
+ */
+public class GlyphMatcher {
+    // in the order of the template map, equally close templates match in it
+    private final String[] keys;
+    private final long[][] templates;
+    private final int[] nearestTemplateDistances;
+    private final int exactDistance;
+
+    // template indexes ordered by dark pixel count, and the counts
+    private final int[] byDarkCount;
+    private final int[] darkCounts;
+
+    public GlyphMatcher(Map<String, long[]> templates) {
+        this(templates, -1);
+    }
+
+    /**
+     * @param exactDistance distance to accept a template at without trying the rest, {@code -1} to always try all
+     */
+    public GlyphMatcher(Map<String, long[]> templates, int exactDistance) {
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException("No templates to match with");
+        }
+        this.keys = templates.keySet().toArray(new String[0]);
+        this.templates = templates.values().toArray(new long[0][]);
+        this.exactDistance = exactDistance;
+
+        this.nearestTemplateDistances = new int[keys.length];
+        for (int index = 0; index < keys.length; index++) {
+            int nearest = Integer.MAX_VALUE;
+            for (int other = 0; other < keys.length; other++) {
+                if (other != index) {
+                    nearest = Math.min(nearest, BinaryGlyphs.distance(this.templates[index], this.templates[other]));
+                }
+            }
+            nearestTemplateDistances[index] = nearest;
+        }
+
+        this.byDarkCount = IntStream.range(0, keys.length).boxed()
+                .sorted(Comparator.comparingInt(index -> darkCount(this.templates[index])))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        this.darkCounts = IntStream.of(byDarkCount).map(index -> darkCount(this.templates[index])).toArray();
+    }
+
+    public GlyphMatch closest(long[] glyph) {
+        return exactDistance < 0 ? closestOfAll(glyph) : closestBounded(glyph);
+    }
+
+    private GlyphMatch closestOfAll(long[] glyph) {
+        int closest = -1;
+        int closestDistance = Integer.MAX_VALUE;
+        int secondDistance = Integer.MAX_VALUE;
+        for (int index = 0; index < templates.length; index++) {
+            final int distance = BinaryGlyphs.distance(glyph, templates[index]);
+            if (distance < closestDistance) {
+                closest = index;
+                secondDistance = closestDistance;
+                closestDistance = distance;
+            } else if (distance < secondDistance) {
+                secondDistance = distance;
+            }
+        }
+        return new GlyphMatch(keys[closest], closestDistance, secondDistance);
+    }
+
+    private GlyphMatch closestBounded(long[] glyph) {
+        final int darkCount = darkCount(glyph);
+        int above = 0;
+        while (above < darkCounts.length && darkCounts[above] < darkCount) {
+            above++;
+        }
+        int below = above - 1;
+
+        int closest = -1;
+        int closestDistance = Integer.MAX_VALUE;
+        int secondDistance = Integer.MAX_VALUE;
+        while (below >= 0 || above < darkCounts.length) {
+            final int position = below < 0 || above < darkCounts.length && darkCounts[above] - darkCount <= darkCount - darkCounts[below] ? above++ : below--;
+            if (Math.abs(darkCounts[position] - darkCount) > secondDistance) {
+                break;
+            }
+
+            final int index = byDarkCount[position];
+            final long[] template = templates[index];
+            int distance = 0;
+            for (int word = 0; word < glyph.length && distance <= secondDistance; word++) {
+                distance += Long.bitCount(glyph[word] ^ template[word]);
+            }
+            if (distance < closestDistance || distance == closestDistance && index < closest) {
+                closest = index;
+                secondDistance = closestDistance;
+                closestDistance = distance;
+                if (distance <= exactDistance && 2 * distance < nearestTemplateDistances[index]) {
+                    secondDistance = nearestTemplateDistances[index] - distance;
+                    break;
+                }
+            } else if (distance < secondDistance) {
+                secondDistance = distance;
+            }
+        }
+        return new GlyphMatch(keys[closest], closestDistance, secondDistance);
+    }
+
+    private static int darkCount(long[] glyph) {
+        int count = 0;
+        for (long word : glyph) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
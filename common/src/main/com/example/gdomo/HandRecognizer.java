@@ -0,0 +1,17 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+@FunctionalInterface
+public interface HandRecognizer {
+    /**
+     * @return the cards of the table, ordered by slot
+     */
+    List<Card> recognizeHand(BufferedImage image, Point origin, TableLayout layout);
+
+    default CardRecognizer describing() {
+        return (image, origin, layout) -> Card.describe(recognizeHand(image, origin, layout));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.gdomo;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Recognizes every table of a capture that tiles several of them, such as a whole desktop. The capture is decoded
+ * once and the tables are recognized in parallel right on its pixels, each at its own origin, without being cut out.
+ * A table of a size without a layout is calibrated on a view of the capture, see {@link TableLayouts}.
+ */
+public class MosaicRecognizer implements AutoCloseable {
+    private static final RecognitionMetrics METRICS = RecognitionMetrics.forComponent("mosaic");
+
+    private final HandRecognizer recognizer;
+    private final ExecutorService pool;
+
+    public MosaicRecognizer(HandRecognizer recognizer, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.recognizer = recognizer;
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "mosaic-recognition");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return bounds of {@code columns x rows} tables of equal size that fill a capture of {@code width x height},
+     * row by row
+     */
+    public static List<Rectangle> grid(int width, int height, int columns, int rows) {
+        return grid(new Rectangle(0, 0, width / columns, height / rows), columns, rows, width / columns, height / rows);
+    }
+
+    /**
+     * @param first bounds of the top-left table
+     * @param stepX distance between the left edges of neighbouring tables
+     * @param stepY distance between the top edges of neighbouring tables
+     * @return bounds of {@code columns x rows} tables, row by row
+     */
+    public static List<Rectangle> grid(Rectangle first, int columns, int rows, int stepX, int stepY) {
+        if (columns < 1 || rows < 1) {
+            throw new IllegalArgumentException("Grid of " + columns + "x" + rows + " tables");
+        }
+        final List<Rectangle> tables = new ArrayList<>(columns * rows);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                tables.add(new Rectangle(first.x + column * stepX, first.y + row * stepY, first.width, first.height));
+            }
+        }
+        return tables;
+    }
+
+    public List<String> recognize(File capture, List<Rectangle> tables) throws IOException {
+        return recognize(decode(capture), tables);
+    }
+
+    /**
+     * @param tables bounds of the tables within the capture
+     * @return cards of every table, in the order of {@code tables}
+     */
+    public List<String> recognize(BufferedImage capture, List<Rectangle> tables) {
+        return recognizeHands(capture, tables).stream().map(Card::describe).collect(Collectors.toList());
+    }
+
+    public static BufferedImage decode(File capture) throws IOException {
+        final long started = RecognitionMetrics.now();
+        final BufferedImage image = ImageIO.read(capture);
+        METRICS.record(RecognitionMetrics.Stage.DECODE, started);
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + capture);
+        }
+        return image;
+    }
+
+    /**
+     * @param tables bounds of the tables within the capture
+     * @return cards of every table, in the order of {@code tables}
+     */
+    public List<List<Card>> recognizeHands(BufferedImage capture, List<Rectangle> tables) {
+        final Rectangle bounds = new Rectangle(capture.getWidth(), capture.getHeight());
+        final List<Callable<List<Card>>> tasks = new ArrayList<>(tables.size());
+        for (Rectangle table : tables) {
+            if (!bounds.contains(table)) {
+                throw new IllegalArgumentException("Table " + table + " outside of " + bounds.width + "x" + bounds.height + " capture");
+            }
+            final TableLayout layout = layout(capture, table);
+            final Point origin = table.getLocation();
+            tasks.add(() -> recognizer.recognizeHand(capture, origin, layout));
+        }
+
+        try {
+            final List<List<Card>> results = new ArrayList<>(tasks.size());
+            for (Future<List<Card>> result : pool.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while recognizing tables", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static TableLayout layout(BufferedImage capture, Rectangle table) {
+        final TableLayout layout = TableLayouts.forSize(table.width, table.height);
+        // a sub-image shares the pixels of the capture
+        return layout != null ? layout : TableLayouts.forImage(capture.getSubimage(table.x, table.y, table.width, table.height));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
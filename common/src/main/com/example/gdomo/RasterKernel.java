@@ -0,0 +1,253 @@
+package com.example.gdomo;
+
+import java.awt.image.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Pixel access for the recognizers that reads the data buffer of an image directly, without the per pixel
+ * {@link BufferedImage#getRGB(int, int)} round trip through the color model, and hands out scratch arrays and images
+ * that are reused from card to card. Packed int RGB and ARGB, interleaved 8-bit RGB, BGR, ABGR and RGBA and 8-bit
+ * indexed images are read directly, and so are the views of mapped frames of {@link FrameDump}, anything else goes
+ * through {@link BufferedImage#getRGB(int, int)}.
+ * <p>
+ * A kernel belongs to a thread: {@link #of(BufferedImage)} returns the kernel of the current thread, bound to the
+ * image until {@link #release()}, and everything it hands out must not leave the thread.
+ */
+public class RasterKernel {
+    private static final ThreadLocal<RasterKernel> KERNELS = ThreadLocal.withInitial(RasterKernel::new);
+
+    private static final int GENERIC = 0;
+    private static final int PACKED_INT = 1;
+    private static final int INTERLEAVED_BYTE = 2;
+    private static final int INDEXED_BYTE = 3;
+    private static final int BYTE_BUFFER = 4;
+
+    private BufferedImage image;
+    private int layout;
+    private int width;
+    private int height;
+    private int[] ints;
+    private byte[] bytes;
+    private IndexColorModel palette;
+    private Rasters.ByteBufferView view;
+    private int translateX;
+    private int translateY;
+    private int scanlineStride;
+    private int pixelStride;
+    private int opaqueBits;
+    private int redOffset;
+    private int greenOffset;
+    private int blueOffset;
+    private int alphaOffset;
+
+    private int[][] intScratch = new int[0][];
+    private long[][] glyphScratch = new long[0][];
+    private BufferedImage[] imageScratch = new BufferedImage[0];
+
+    private RasterKernel() {
+    }
+
+    public static RasterKernel of(BufferedImage image) {
+        final RasterKernel kernel = KERNELS.get();
+        if (kernel.image != image) {
+            kernel.bind(image);
+        }
+        return kernel;
+    }
+
+    /**
+     * Unbinds the kernel of the current thread from its image, so that a pooled thread does not keep the last image it
+     * read reachable until it reads the next one. The scratch arrays and images stay.
+     */
+    public static void release() {
+        final RasterKernel kernel = KERNELS.get();
+        kernel.image = null;
+        kernel.width = 0;
+        kernel.height = 0;
+        kernel.ints = null;
+        kernel.bytes = null;
+        kernel.palette = null;
+        kernel.view = null;
+        kernel.layout = GENERIC;
+    }
+
+    /**
+     * @return the kernel of the current thread for its scratch buffers only, it reads the last image it was bound to
+     */
+    public static RasterKernel forCurrentThread() {
+        return KERNELS.get();
+    }
+
+    public int argb(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            throw new ArrayIndexOutOfBoundsException("Pixel " + x + "," + y + " outside of " + width + "x" + height + " image");
+        }
+        return switch (layout) {
+            case PACKED_INT -> ints[(y - translateY) * scanlineStride + x - translateX] | opaqueBits;
+            case INTERLEAVED_BYTE -> {
+                final int i = (y - translateY) * scanlineStride + (x - translateX) * pixelStride;
+                final int alpha = alphaOffset < 0 ? 0xFF000000 : bytes[i + alphaOffset] << 24;
+                yield alpha | (bytes[i + redOffset] & 0xFF) << 16 | (bytes[i + greenOffset] & 0xFF) << 8 | bytes[i + blueOffset] & 0xFF;
+            }
+            case BYTE_BUFFER -> {
+                // the view moves from frame to frame, so its buffer and start are read every time
+                final ByteBuffer buffer = view.buffer;
+                final int i = view.start + (y - translateY) * scanlineStride + (x - translateX) * pixelStride;
+                final int alpha = alphaOffset < 0 ? 0xFF000000 : buffer.get(i + alphaOffset) << 24;
+                yield alpha | (buffer.get(i + redOffset) & 0xFF) << 16 | (buffer.get(i + greenOffset) & 0xFF) << 8 | buffer.get(i + blueOffset) & 0xFF;
+            }
+            case INDEXED_BYTE -> palette.getRGB(bytes[(y - translateY) * scanlineStride + x - translateX] & 0xFF);
+            default -> image.getRGB(x, y);
+        };
+    }
+
+    public int blue(int x, int y) {
+        return argb(x, y) & 0xFF;
+    }
+
+    /**
+     * @return ARGB pixels of the area row by row in a scratch array of exactly {@code width * height} elements,
+     * overwritten by the next area of the same size read on this thread
+     */
+    public int[] readArea(int x, int y, int width, int height) {
+        final int[] area = ints(width * height);
+        for (int row = 0, i = 0; row < height; row++) {
+            for (int column = 0; column < width; column++, i++) {
+                area[i] = argb(x + column, y + row);
+            }
+        }
+        return area;
+    }
+
+    /**
+     * Reads the area scaled to {@code scaledWidth x scaledHeight} by taking the pixel nearest to the centre of every
+     * scaled pixel, into a scratch array as {@link #readArea(int, int, int, int)} does.
+     */
+    public int[] readArea(int x, int y, int width, int height, int scaledWidth, int scaledHeight) {
+        if (width == scaledWidth && height == scaledHeight) {
+            return readArea(x, y, width, height);
+        }
+        final int[] area = ints(scaledWidth * scaledHeight);
+        for (int row = 0, i = 0; row < scaledHeight; row++) {
+            final int sourceY = y + (2 * row + 1) * height / (2 * scaledHeight);
+            for (int column = 0; column < scaledWidth; column++, i++) {
+                area[i] = argb(x + (2 * column + 1) * width / (2 * scaledWidth), sourceY);
+            }
+        }
+        return area;
+    }
+
+    /**
+     * @return scratch array of exactly {@code length} elements, shared with every other request of the same length
+     */
+    public int[] ints(int length) {
+        for (int[] scratch : intScratch) {
+            if (scratch.length == length) {
+                return scratch;
+            }
+        }
+        intScratch = Arrays.copyOf(intScratch, intScratch.length + 1);
+        return intScratch[intScratch.length - 1] = new int[length];
+    }
+
+    /**
+     * @return cleared scratch glyph for {@link BinaryGlyphs} of {@code pixels} pixels
+     */
+    public long[] glyph(int pixels) {
+        final int words = (pixels + 63) >>> 6;
+        for (long[] scratch : glyphScratch) {
+            if (scratch.length == words) {
+                Arrays.fill(scratch, 0);
+                return scratch;
+            }
+        }
+        glyphScratch = Arrays.copyOf(glyphScratch, glyphScratch.length + 1);
+        return glyphScratch[glyphScratch.length - 1] = BinaryGlyphs.allocate(pixels);
+    }
+
+    /**
+     * @param index tells apart scratch images of the same size needed at the same time
+     * @return {@link BufferedImage#TYPE_INT_ARGB} scratch image, its pixels are left from the previous use
+     */
+    public BufferedImage scratchImage(int width, int height, int index) {
+        int sameSize = 0;
+        for (BufferedImage scratch : imageScratch) {
+            if (scratch.getWidth() == width && scratch.getHeight() == height && sameSize++ == index) {
+                return scratch;
+            }
+        }
+        imageScratch = Arrays.copyOf(imageScratch, imageScratch.length + 1);
+        return imageScratch[imageScratch.length - 1] = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private void bind(BufferedImage image) {
+        this.image = image;
+        final WritableRaster raster = image.getRaster();
+        final SampleModel sampleModel = raster.getSampleModel();
+        final DataBuffer dataBuffer = raster.getDataBuffer();
+        final ColorModel colorModel = image.getColorModel();
+
+        width = image.getWidth();
+        height = image.getHeight();
+        translateX = raster.getSampleModelTranslateX();
+        translateY = raster.getSampleModelTranslateY();
+        ints = null;
+        bytes = null;
+        palette = null;
+        view = null;
+        layout = GENERIC;
+        if (dataBuffer.getNumBanks() != 1 || dataBuffer.getOffset() != 0 || colorModel.isAlphaPremultiplied()) {
+            return;
+        }
+
+        if (dataBuffer instanceof DataBufferInt && sampleModel instanceof SinglePixelPackedSampleModel packed
+                && colorModel instanceof DirectColorModel direct && direct.getColorSpace().isCS_sRGB()
+                && direct.getRedMask() == 0xFF0000 && direct.getGreenMask() == 0xFF00 && direct.getBlueMask() == 0xFF
+                && (direct.getAlphaMask() == 0 || direct.getAlphaMask() == 0xFF000000)) {
+            ints = ((DataBufferInt) dataBuffer).getData();
+            scanlineStride = packed.getScanlineStride();
+            opaqueBits = direct.getAlphaMask() == 0 ? 0xFF000000 : 0;
+            layout = PACKED_INT;
+        } else if (dataBuffer instanceof DataBufferByte && sampleModel instanceof PixelInterleavedSampleModel interleaved) {
+            if (colorModel instanceof IndexColorModel indexed && interleaved.getNumBands() == 1 && interleaved.getSampleSize(0) == 8) {
+                bytes = ((DataBufferByte) dataBuffer).getData();
+                palette = indexed;
+                scanlineStride = interleaved.getScanlineStride();
+                layout = INDEXED_BYTE;
+            } else if (isInterleavedRgb(interleaved, colorModel)) {
+                bytes = ((DataBufferByte) dataBuffer).getData();
+                bindInterleaved(interleaved, colorModel);
+                layout = INTERLEAVED_BYTE;
+            }
+        } else if (dataBuffer instanceof Rasters.ByteBufferView buffer && sampleModel instanceof PixelInterleavedSampleModel interleaved
+                && isInterleavedRgb(interleaved, colorModel)) {
+            view = buffer;
+            bindInterleaved(interleaved, colorModel);
+            layout = BYTE_BUFFER;
+        }
+    }
+
+    private void bindInterleaved(PixelInterleavedSampleModel interleaved, ColorModel colorModel) {
+        scanlineStride = interleaved.getScanlineStride();
+        pixelStride = interleaved.getPixelStride();
+        redOffset = interleaved.getOffset(0, 0, 0);
+        greenOffset = interleaved.getOffset(0, 0, 1);
+        blueOffset = interleaved.getOffset(0, 0, 2);
+        alphaOffset = colorModel.hasAlpha() ? interleaved.getOffset(0, 0, 3) : -1;
+    }
+
+    private static boolean isInterleavedRgb(PixelInterleavedSampleModel interleaved, ColorModel colorModel) {
+        return colorModel instanceof ComponentColorModel && colorModel.getColorSpace().isCS_sRGB() && isEightBit(colorModel)
+                && interleaved.getNumBands() == colorModel.getNumComponents();
+    }
+
+    private static boolean isEightBit(ColorModel colorModel) {
+        for (int i = 0; i < colorModel.getNumComponents(); i++) {
+            if (colorModel.getComponentSize(i) != 8) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
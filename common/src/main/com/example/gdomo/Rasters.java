@@ -0,0 +1,125 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.color.ColorSpace;
+import java.awt.image.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Views of pixels already in memory as {@link BufferedImage}s for the recognizers. Arrays are wrapped, not copied,
+ * so a frame goes to recognition without being encoded, written, read and decoded again.
+ */
+public class Rasters {
+    public enum PixelLayout {
+        RGB(0, 1, 2),
+        BGR(2, 1, 0),
+        RGBA(0, 1, 2, 3),
+        BGRA(2, 1, 0, 3);
+
+        private final int[] bandOffsets;
+
+        PixelLayout(int... bandOffsets) {
+            this.bandOffsets = bandOffsets;
+        }
+
+        public int bytesPerPixel() {
+            return bandOffsets.length;
+        }
+
+        boolean hasAlpha() {
+            return bandOffsets.length == 4;
+        }
+    }
+
+    /**
+     * @param argb pixels row by row as {@link BufferedImage#TYPE_INT_ARGB} stores them
+     */
+    public static BufferedImage wrapArgb(int[] argb, int width, int height) {
+        if (width <= 0 || height <= 0 || argb.length < (long) width * height) {
+            throw new IllegalArgumentException(width + "x" + height + " image does not fit " + argb.length + " pixels");
+        }
+
+        final DirectColorModel colorModel = (DirectColorModel) ColorModel.getRGBdefault();
+        final WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(argb, width * height), width, height, width, colorModel.getMasks(), null);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * Wraps the remaining bytes of a heap buffer, a direct or read-only buffer is copied first.
+     *
+     * @param stride bytes from the start of a row to the start of the next one
+     */
+    public static BufferedImage wrap(ByteBuffer pixels, int width, int height, int stride, PixelLayout layout) {
+        if (width <= 0 || height <= 0 || stride < width * layout.bytesPerPixel()
+                || pixels.remaining() < (long) (height - 1) * stride + (long) width * layout.bytesPerPixel()) {
+            throw new IllegalArgumentException(width + "x" + height + " " + layout + " image with stride " + stride + " does not fit " + pixels.remaining() + " bytes");
+        }
+
+        final byte[] data;
+        final int offset;
+        if (pixels.hasArray()) {
+            data = pixels.array();
+            offset = pixels.arrayOffset() + pixels.position();
+        } else {
+            data = new byte[pixels.remaining()];
+            pixels.duplicate().get(data);
+            offset = 0;
+        }
+
+        // interleaved rasters ignore the offset of their data buffer, so it goes into the band offsets
+        final int[] bandOffsets = layout.bandOffsets.clone();
+        for (int i = 0; i < bandOffsets.length; i++) {
+            bandOffsets[i] += offset;
+        }
+        final WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(data, data.length), width, height, stride, layout.bytesPerPixel(), bandOffsets, null);
+        final ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), layout.hasAlpha(), false,
+                layout.hasAlpha() ? Transparency.TRANSLUCENT : Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * Image of the bytes of {@code view} from wherever it is moved to, read-only.
+     */
+    static BufferedImage view(ByteBufferView view, int width, int height, int stride, PixelLayout layout) {
+        if (width <= 0 || height <= 0 || stride < width * layout.bytesPerPixel() || view.getSize() < (long) (height - 1) * stride + (long) width * layout.bytesPerPixel()) {
+            throw new IllegalArgumentException(width + "x" + height + " " + layout + " image with stride " + stride + " does not fit " + view.getSize() + " bytes");
+        }
+
+        final SampleModel sampleModel = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, width, height, layout.bytesPerPixel(), stride, layout.bandOffsets);
+        final WritableRaster raster = Raster.createWritableRaster(sampleModel, view, null);
+        final ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), layout.hasAlpha(), false,
+                layout.hasAlpha() ? Transparency.TRANSLUCENT : Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * {@code size} bytes of a buffer, usually a mapped file, from a start that can be moved, so one image shows frame
+     * after frame. {@link RasterKernel} reads the buffer directly.
+     */
+    static class ByteBufferView extends DataBuffer {
+        ByteBuffer buffer;
+        int start;
+
+        ByteBufferView(int size) {
+            super(TYPE_BYTE, size);
+        }
+
+        void show(ByteBuffer buffer, int start) {
+            if (start < 0 || start > buffer.limit() - getSize()) {
+                throw new IndexOutOfBoundsException(getSize() + " bytes from " + start + " outside of " + buffer.limit() + " bytes");
+            }
+            this.buffer = buffer;
+            this.start = start;
+        }
+
+        @Override
+        public int getElem(int bank, int i) {
+            return buffer.get(start + i) & 0xFF;
+        }
+
+        @Override
+        public void setElem(int bank, int i, int value) {
+            throw new UnsupportedOperationException("Views of buffers are read-only");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Connection to a {@link RecognitionDaemon}. Requests can be pipelined: send several, {@link #flush()}, then
+ * {@link #receive()} the answers in the same order. Answers are only read by {@link #receive()}, so a long pipeline
+ * should be received from another thread while sending, or the socket buffers fill up on both sides.
+ */
+public class RecognitionClient implements Closeable {
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    private RecognitionClient(SocketChannel channel) {
+        this.channel = channel;
+        this.in = new DataInputStream(new BufferedInputStream(RecognitionDaemon.inputStream(channel), 1 << 16));
+        this.out = new DataOutputStream(new BufferedOutputStream(RecognitionDaemon.outputStream(channel), 1 << 16));
+    }
+
+    public static RecognitionClient connect(String address) throws IOException {
+        if (RecognitionDaemon.isPort(address)) {
+            return new RecognitionClient(SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address))));
+        }
+        final SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.connect(UnixDomainSocketAddress.of(Path.of(address)));
+        return new RecognitionClient(channel);
+    }
+
+    public String recognizeFile(String path) throws IOException {
+        sendFile(path);
+        flush();
+        return receive();
+    }
+
+    public String recognizePng(byte[] png) throws IOException {
+        sendPng(png);
+        flush();
+        return receive();
+    }
+
+    public String recognizeArgb(int[] argb, int width, int height, Point origin) throws IOException {
+        sendArgb(argb, width, height, origin);
+        flush();
+        return receive();
+    }
+
+    public void sendFile(String path) throws IOException {
+        out.writeByte(RecognitionDaemon.FILE);
+        RecognitionDaemon.writeString(out, path);
+    }
+
+    public void sendPng(byte[] png) throws IOException {
+        out.writeByte(RecognitionDaemon.PNG);
+        out.writeInt(png.length);
+        out.write(png);
+    }
+
+    public void sendArgb(int[] argb, int width, int height, Point origin) throws IOException {
+        out.writeByte(RecognitionDaemon.ARGB);
+        out.writeInt(origin.x);
+        out.writeInt(origin.y);
+        out.writeInt(width);
+        out.writeInt(height);
+        final ByteBuffer pixels = ByteBuffer.allocate(width * height * Integer.BYTES);
+        pixels.asIntBuffer().put(argb, 0, width * height);
+        out.write(pixels.array());
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * @return cards of the oldest unanswered request
+     * @throws IOException if the daemon could not recognize it
+     */
+    public String receive() throws IOException {
+        final int status = in.readUnsignedByte();
+        final String answer = RecognitionDaemon.readString(in);
+        if (status != RecognitionDaemon.OK) {
+            throw new IOException(answer);
+        }
+        return answer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a recognizer loaded and answers requests on a Unix domain socket, or on a localhost TCP port when the
+ * address is a number. A connection may send any number of requests without waiting for the answers, they are
+ * answered in order.
+ * <p>
+ * Big-endian requests start with a type byte: {@link #FILE} and a string with the path of a screenshot within the root
+ * directory, relative to it or absolute, {@link #PNG} and an int length with the PNG bytes, or {@link #ARGB} and ints
+ * origin x, origin y, width, height followed by the pixels row by row. An answer is a status byte, {@link #OK} or
+ * {@link #ERROR}, and a string with the cards or the error message. Strings are a short byte length followed by UTF-8
+ * bytes.
+ */
+public class RecognitionDaemon {
+    public static final int FILE = 1;
+    public static final int PNG = 2;
+    public static final int ARGB = 3;
+
+    public static final int OK = 0;
+    public static final int ERROR = 1;
+
+    private static final int MAX_PNG_BYTES = 1 << 28;
+    private static final int MAX_PIXELS = 1 << 26;
+
+    /**
+     * @param root the directory {@link #FILE} requests may read from, links out of it are followed and rejected
+     */
+    public static void serve(String address, Path root, CardRecognizer recognizer, CardStripDecoder decoder) throws IOException {
+        final Path realRoot = root.toRealPath();
+        // opened first, so that the socket of another daemon is never deleted on the way out
+        final ServerSocketChannel server = open(address);
+        final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "recognition-connection");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (server) {
+            while (true) {
+                final SocketChannel channel = server.accept();
+                connections.execute(() -> handle(channel, realRoot, recognizer, decoder));
+            }
+        } finally {
+            connections.shutdownNow();
+            if (!isPort(address)) {
+                Files.deleteIfExists(Path.of(address));
+            }
+        }
+    }
+
+    private static ServerSocketChannel open(String address) throws IOException {
+        if (isPort(address)) {
+            return ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address)));
+        }
+
+        final Path socketFile = Path.of(address);
+        if (Files.exists(socketFile) && !Files.isRegularFile(socketFile) && !Files.isDirectory(socketFile)) {
+            try {
+                SocketChannel.open(UnixDomainSocketAddress.of(socketFile)).close();
+            } catch (ConnectException e) {
+                // left behind by a daemon that did not shut down cleanly
+                Files.delete(socketFile);
+            }
+            if (Files.exists(socketFile)) {
+                throw new BindException("A daemon is already listening on " + socketFile);
+            }
+        }
+        return ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(UnixDomainSocketAddress.of(socketFile));
+    }
+
+    static boolean isPort(String address) {
+        return address.matches("\\d+");
+    }
+
+    private static void handle(SocketChannel channel, Path root, CardRecognizer recognizer, CardStripDecoder decoder) {
+        try (channel;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream(channel), 1 << 16));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream(channel), 1 << 16))) {
+            while (true) {
+                final int type = in.read();
+                if (type < 0) {
+                    return;
+                }
+
+                final ImageSource source;
+                try {
+                    source = readRequest(type, in, root, decoder);
+                } catch (ProtocolException e) {
+                    // the rest of the stream can't be made sense of
+                    writeAnswer(out, ERROR, e.getMessage());
+                    out.flush();
+                    return;
+                }
+
+                String answer;
+                int status = OK;
+                try {
+                    final TableImage table = source.decode();
+                    answer = recognizer.recognize(table.image(), table.origin(), table.layout());
+                } catch (IOException | RuntimeException e) {
+                    answer = String.valueOf(e);
+                    status = ERROR;
+                }
+                writeAnswer(out, status, answer);
+
+                // answers to pipelined requests go out together once every buffered request is answered
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // client went away, nothing to answer
+        }
+    }
+
+    /**
+     * Reads the whole request off the stream, so that a screenshot that fails to decode fails only its own request.
+     */
+    private static ImageSource readRequest(int type, DataInputStream in, Path root, CardStripDecoder decoder) throws IOException {
+        return switch (type) {
+            case FILE -> {
+                final String path = readString(in);
+                yield () -> decoder.decode(resolve(root, path).toFile());
+            }
+            case PNG -> {
+                final byte[] png = readPng(in);
+                yield () -> decoder.decode(png);
+            }
+            case ARGB -> {
+                final TableImage table = readArgb(in);
+                yield () -> table;
+            }
+            default -> throw new ProtocolException("Unknown request type " + type);
+        };
+    }
+
+    private static Path resolve(Path root, String path) throws IOException {
+        // fails for a missing file, and is outside the root for a link pointing out of it
+        final Path file = root.resolve(path).toRealPath();
+        if (!file.startsWith(root)) {
+            throw new AccessDeniedException(path, null, "outside of " + root);
+        }
+        return file;
+    }
+
+    private static byte[] readPng(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0 || length > MAX_PNG_BYTES) {
+            throw new ProtocolException("PNG length out of range: " + length);
+        }
+        final byte[] png = new byte[length];
+        in.readFully(png);
+        return png;
+    }
+
+    private static TableImage readArgb(DataInputStream in) throws IOException {
+        final Point origin = new Point(in.readInt(), in.readInt());
+        final int width = in.readInt();
+        final int height = in.readInt();
+        if (width <= 0 || height <= 0 || (long) width * height > MAX_PIXELS) {
+            throw new ProtocolException("Image size out of range: " + width + "x" + height);
+        }
+
+        final byte[] bytes = new byte[width * height * Integer.BYTES];
+        in.readFully(bytes);
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        ByteBuffer.wrap(bytes).asIntBuffer().get(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+        // a whole frame may be of any size, a strip is cut out of a screenshot of the default layout
+        return new TableImage(image, origin, origin.x == 0 && origin.y == 0 ? TableLayouts.forImage(image) : TableLayout.DEFAULT);
+    }
+
+    /*
+     * Streams of Channels.newInputStream/newOutputStream share a lock, so a reader blocked on a socket channel
+     * would keep a pipelining client from sending. These go to the channel directly.
+     */
+    static InputStream inputStream(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                final byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return len == 0 ? 0 : channel.read(ByteBuffer.wrap(b, off, len));
+            }
+        };
+    }
+
+    static OutputStream outputStream(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        };
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeAnswer(DataOutputStream out, int status, String text) throws IOException {
+        out.writeByte(status);
+        writeString(out, text);
+    }
+
+    private interface ImageSource {
+        TableImage decode() throws IOException;
+    }
+
+    private static class ProtocolException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ProtocolException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.gdomo;
+
+import javax.management.*;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of the recognition stages and counters of what was recognized, kept per component (the decoder and
+ * every engine), with the counters of the glyph caches the component added. Each component is a JMX MBean
+ * {@code com.example.gdomo:type=RecognitionMetrics,name=...} with one long attribute per value. With
+ * {@code brainshells.metrics.dump=<file>} all components are also written to the file as JSON every
+ * {@code brainshells.metrics.dumpSeconds} seconds (60 by default) and on exit.
+ * <p>
+ * Recording takes a couple of adder increments and is on by default, {@code -Dbrainshells.metrics=false} turns it off.
+ * Latencies are in nanoseconds, histogram values are exact to a quarter of their power of two.
+ */
+public class RecognitionMetrics implements DynamicMBean {
+    private static final boolean ENABLED = !"false".equals(System.getProperty("brainshells.metrics"));
+    private static final String DUMP_FILE = System.getProperty("brainshells.metrics.dump");
+    private static final long DUMP_SECONDS = Long.getLong("brainshells.metrics.dumpSeconds", 60);
+
+    private static final int MAX_CARDS = 5;
+    private static final int CONFIDENCE_BUCKETS = 10;
+
+    private static final Map<String, RecognitionMetrics> COMPONENTS = new ConcurrentSkipListMap<>();
+
+    // the platform MBean server takes a few hundred milliseconds to start, recognition does not wait for it
+    private static final ExecutorService REGISTRATION = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "metrics-registration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        if (ENABLED && DUMP_FILE != null) {
+            startDump(Path.of(DUMP_FILE), DUMP_SECONDS);
+        }
+    }
+
+    public enum Stage {
+        /**
+         * Reading and decoding a screenshot, they are one stage as the strip decoder reads the file while inflating.
+         */
+        DECODE,
+        BACKGROUND,
+        CROP,
+        /**
+         * Glyph cache lookup, with normalizing and matching on a miss.
+         */
+        LOOKUP,
+        NORMALIZE,
+        MATCH,
+        FALLBACK;
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final String name;
+    private final Histogram[] stages = new Histogram[Stage.values().length];
+    private final Histogram margins = new Histogram();
+    private final LongAdder[] cardsPerImage = adders(MAX_CARDS + 1);
+    private final LongAdder[] confidences = adders(CONFIDENCE_BUCKETS);
+    private final Map<String, GlyphCache> caches = new ConcurrentSkipListMap<>();
+
+    private RecognitionMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new Histogram();
+        }
+    }
+
+    public static RecognitionMetrics forComponent(String name) {
+        return COMPONENTS.computeIfAbsent(name, component -> {
+            final RecognitionMetrics metrics = new RecognitionMetrics(component);
+            if (ENABLED) {
+                REGISTRATION.execute(metrics::register);
+            }
+            return metrics;
+        });
+    }
+
+    public static Collection<RecognitionMetrics> components() {
+        return Collections.unmodifiableCollection(COMPONENTS.values());
+    }
+
+    /**
+     * @return start of a stage for {@link #record(Stage, long)}
+     */
+    public static long now() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @return end of the stage, the start of the next one
+     */
+    public long record(Stage stage, long started) {
+        if (!ENABLED) {
+            return 0;
+        }
+        final long now = System.nanoTime();
+        stages[stage.ordinal()].record(now - started);
+        return now;
+    }
+
+    /**
+     * @param margin how far the winner was from the runner-up, in whatever the engine compares: differing pixels for
+     *               template matching, distance from the threshold for key pixels
+     */
+    public void recordMargin(int margin) {
+        if (ENABLED) {
+            margins.record(margin);
+        }
+    }
+
+    public void recordMatch(GlyphMatch match) {
+        recordMargin(match.secondDistance() - match.distance());
+    }
+
+    public void recordHand(List<Card> cards) {
+        if (!ENABLED) {
+            return;
+        }
+        cardsPerImage[Math.min(cards.size(), MAX_CARDS)].increment();
+        for (Card card : cards) {
+            confidences[Math.min((int) (card.confidence() * CONFIDENCE_BUCKETS), CONFIDENCE_BUCKETS - 1)].increment();
+        }
+    }
+
+    /**
+     * Publishes the counters of the cache as {@code <key>.hits} and so on, a cache that is off publishes nothing.
+     */
+    public void addCache(String key, GlyphCache cache) {
+        caches.put(key, cache);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Map<String, Long> snapshot() {
+        final Map<String, Long> values = new LinkedHashMap<>();
+        long images = 0;
+        for (LongAdder adder : cardsPerImage) {
+            images += adder.sum();
+        }
+        values.put("images", images);
+        values.put("emptyResults", cardsPerImage[0].sum());
+        for (int i = 1; i <= MAX_CARDS; i++) {
+            values.put("cards." + i, cardsPerImage[i].sum());
+        }
+        for (int i = 0; i < CONFIDENCE_BUCKETS; i++) {
+            values.put("confidence." + i, confidences[i].sum());
+        }
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()].snapshot(stage.key(), "Nanos", values);
+        }
+        margins.snapshot("margin", "", values);
+        for (Map.Entry<String, GlyphCache> cache : caches.entrySet()) {
+            final GlyphCache.Stats stats = cache.getValue().stats();
+            if (stats.size() > 0) {
+                values.put(cache.getKey() + ".size", (long) stats.size());
+                values.put(cache.getKey() + ".hits", stats.hits());
+                values.put(cache.getKey() + ".misses", stats.misses());
+                values.put(cache.getKey() + ".evictions", stats.evictions());
+                values.put(cache.getKey() + ".collisions", stats.collisions());
+            }
+        }
+        return values;
+    }
+
+    public static String toJson() {
+        final StringBuilder json = new StringBuilder("{\"timestamp\":").append(System.currentTimeMillis());
+        for (RecognitionMetrics metrics : COMPONENTS.values()) {
+            json.append(",\n\"").append(metrics.name).append("\":{");
+            String separator = "";
+            for (Map.Entry<String, Long> value : metrics.snapshot().entrySet()) {
+                json.append(separator).append('"').append(value.getKey()).append("\":").append(value.getValue());
+                separator = ",";
+            }
+            json.append('}');
+        }
+        return json.append("}\n").toString();
+    }
+
+    public static void startDump(Path file, long periodSeconds) {
+        final ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> dump(file), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(file), "metrics-final-dump"));
+    }
+
+    private static void dump(Path file) {
+        try {
+            // readers never see a half written file
+            final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temporary, toJson(), StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write metrics to " + file + ": " + e);
+        }
+    }
+
+    private void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("com.example.gdomo:type=RecognitionMetrics,name=" + ObjectName.quote(name)));
+        } catch (JMException e) {
+            System.err.println("Could not register metrics of " + name + " with JMX: " + e);
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        final Long value = snapshot().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        final Map<String, Long> values = snapshot();
+        final AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            if (values.containsKey(attribute)) {
+                list.add(new Attribute(attribute, values.get(attribute)));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Recognition metrics are read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        final List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String attribute : snapshot().keySet()) {
+            attributes.add(new MBeanAttributeInfo(attribute, "long", attribute, true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Recognition metrics of " + name, attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+
+    private static LongAdder[] adders(int count) {
+        final LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Counts of non-negative values in buckets of a quarter of a power of two.
+     */
+    private static class Histogram {
+        private static final int SUB_BUCKETS = 4;
+
+        private final LongAdder[] buckets = adders(SUB_BUCKETS * Long.SIZE);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        void record(long value) {
+            value = Math.max(0, value);
+            buckets[bucket(value)].increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            final int exponent = 63 - Long.numberOfLeadingZeros(value);
+            return (exponent - 1) * SUB_BUCKETS + (int) (value >>> (exponent - 2) & SUB_BUCKETS - 1);
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            final int exponent = bucket / SUB_BUCKETS + 1;
+            return ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS + 1) << (exponent - 2)) - 1;
+        }
+
+        void snapshot(String prefix, String unit, Map<String, Long> values) {
+            final long[] counts = new long[buckets.length];
+            long count = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets[i].sum();
+                count += counts[i];
+            }
+            final long max = count == 0 ? 0 : this.max.get();
+            values.put(prefix + ".count", count);
+            values.put(prefix + ".mean" + unit, count == 0 ? 0 : sum.sum() / count);
+            // a bucket bound may lie beyond the values actually seen
+            values.put(prefix + ".p50" + unit, Math.min(max, percentile(counts, count, 0.5)));
+            values.put(prefix + ".p99" + unit, Math.min(max, percentile(counts, count, 0.99)));
+            values.put(prefix + ".max" + unit, max);
+        }
+
+        private static long percentile(long[] counts, long count, double percentile) {
+            final long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return upperBound(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
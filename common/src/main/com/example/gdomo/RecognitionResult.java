@@ -0,0 +1,17 @@
+package com.example.gdomo;
+
+import java.util.List;
+
+/**
+ * The cards recognized on a screenshot named {@code source}, or on table {@code table} of a capture of several tables,
+ * see {@link MosaicRecognizer}. A screenshot of a single table has table {@code -1}.
+ */
+public record RecognitionResult(String source, int table, List<Card> cards) {
+    public RecognitionResult(String source, List<Card> cards) {
+        this(source, -1, cards);
+    }
+
+    public String description() {
+        return Card.describe(cards);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.gdomo;
+
+import java.io.IOException;
+
+/**
+ * Where recognition results go, see {@link AsyncResultSink}.
+ */
+public interface ResultSink extends AutoCloseable {
+    void accept(RecognitionResult result);
+
+    /**
+     * Writes out every result accepted so far.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,256 @@
+package com.example.gdomo;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The PNG screenshots of a ZIP archive, read through the zip file system, or of a tar archive, possibly gzipped, read
+ * as a stream, without extracting them. ZIP entries are read by whichever thread decodes them, tar entries one after
+ * another while iterating, see {@link BatchRecognizer#recognize(ScreenshotArchive, ResultSink, boolean)}.
+ */
+public class ScreenshotArchive implements Closeable, Iterable<ScreenshotArchive.Entry> {
+    private static final int BLOCK = 512;
+
+    /**
+     * A screenshot named by its path within the archive, with either the path to read it from or its bytes.
+     */
+    public record Entry(String name, Path path, byte[] png) {
+        TableImage decode(CardStripDecoder decoder) throws IOException {
+            return decoder.decode(png != null ? png : Files.readAllBytes(path));
+        }
+    }
+
+    private final Path archive;
+    private final FileSystem zip;
+    // closed with the archive, an iteration that stopped early leaves its stream open
+    private final List<TarEntries> tarEntries = new ArrayList<>();
+
+    private ScreenshotArchive(Path archive, FileSystem zip) {
+        this.archive = archive;
+        this.zip = zip;
+    }
+
+    public static boolean isArchive(Path path) {
+        final String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return Files.isRegularFile(path) && (name.endsWith(".zip") || name.endsWith(".tar") || name.endsWith(".tar.gz") || name.endsWith(".tgz"));
+    }
+
+    public static ScreenshotArchive open(Path archive) throws IOException {
+        if (archive.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip")) {
+            return new ScreenshotArchive(archive, FileSystems.newFileSystem(URI.create("jar:" + archive.toUri()), Map.of()));
+        }
+        return new ScreenshotArchive(archive, null);
+    }
+
+    /**
+     * @throws UncheckedIOException if the archive cannot be read
+     */
+    @Override
+    public Iterator<Entry> iterator() {
+        try {
+            if (zip != null) {
+                return zipEntries();
+            }
+            final TarEntries entries = new TarEntries(archive);
+            synchronized (tarEntries) {
+                tarEntries.add(entries);
+            }
+            return entries;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Iterator<Entry> zipEntries() throws IOException {
+        try (Stream<Path> paths = Files.walk(zip.getPath("/"))) {
+            return paths.filter(path -> isPng(path.toString()) && Files.isRegularFile(path))
+                    .map(path -> new Entry(path.toString().substring(1), path, null))
+                    .toList()
+                    .iterator();
+        }
+    }
+
+    private static boolean isPng(String name) {
+        return name.toLowerCase(Locale.ROOT).endsWith(".png");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (zip != null) {
+            zip.close();
+        }
+        synchronized (tarEntries) {
+            for (TarEntries entries : tarEntries) {
+                entries.close();
+            }
+            tarEntries.clear();
+        }
+    }
+
+    /**
+     * Reads ustar headers, with GNU long names and pax paths, skipping whatever is not a PNG file.
+     */
+    private static class TarEntries implements Iterator<Entry>, Closeable {
+        private final DataInputStream in;
+        private final byte[] header = new byte[BLOCK];
+        private Entry next;
+        private boolean ended;
+
+        TarEntries(Path archive) throws IOException {
+            final String name = archive.getFileName().toString().toLowerCase(Locale.ROOT);
+            final InputStream file = new BufferedInputStream(Files.newInputStream(archive), 1 << 16);
+            this.in = new DataInputStream(name.endsWith(".tar") ? file : new BufferedInputStream(new GZIPInputStream(file, 1 << 16), 1 << 16));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !ended) {
+                try {
+                    next = readNext();
+                } catch (IOException e) {
+                    ended = true;
+                    close();
+                    throw new UncheckedIOException(e);
+                }
+                if (next == null) {
+                    ended = true;
+                    close();
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Entry entry = next;
+            next = null;
+            return entry;
+        }
+
+        private Entry readNext() throws IOException {
+            String longName = null;
+            while (true) {
+                try {
+                    in.readFully(header);
+                } catch (EOFException e) {
+                    return null;
+                }
+                if (header[0] == 0) {
+                    return null;
+                }
+
+                final long size = octal(124, 12);
+                final byte type = header[156];
+                final byte[] data = type == '0' || type == 0 || type == 'L' || type == 'x' ? readData(size) : null;
+                if (data == null) {
+                    skip(size);
+                }
+                switch (type) {
+                    case 'L' -> longName = string(data, 0, data.length);
+                    case 'x' -> longName = paxPath(data, longName);
+                    case '0', 0 -> {
+                        final String name = longName != null ? longName : name();
+                        if (isPng(name)) {
+                            return new Entry(name, null, data);
+                        }
+                        longName = null;
+                    }
+                    default -> longName = null;
+                }
+            }
+        }
+
+        private String name() {
+            final String name = string(header, 0, 100);
+            final String prefix = new String(header, 257, 6, StandardCharsets.US_ASCII).startsWith("ustar") ? string(header, 345, 155) : "";
+            return prefix.isEmpty() ? name : prefix + "/" + name;
+        }
+
+        private byte[] readData(long size) throws IOException {
+            if (size > Integer.MAX_VALUE - BLOCK) {
+                throw new IOException("Tar entry of " + size + " bytes");
+            }
+            final byte[] data = new byte[(int) size];
+            in.readFully(data);
+            in.skipNBytes(-size & (BLOCK - 1));
+            return data;
+        }
+
+        private void skip(long bytes) throws IOException {
+            in.skipNBytes(bytes + (-bytes & (BLOCK - 1)));
+        }
+
+        private long octal(int offset, int length) throws IOException {
+            long value = 0;
+            for (int i = offset; i < offset + length && header[i] != 0 && header[i] != ' '; i++) {
+                if (header[i] < '0' || header[i] > '7') {
+                    throw new IOException("Not a tar header");
+                }
+                value = value * 8 + header[i] - '0';
+            }
+            return value;
+        }
+
+        /**
+         * @return the {@code path} record of pax extended header data, records are {@code "<length> <key>=<value>\n"}
+         * with the length in bytes, values in UTF-8
+         */
+        private static String paxPath(byte[] data, String otherwise) throws IOException {
+            int start = 0;
+            while (start < data.length) {
+                int space = start;
+                while (space < data.length && data[space] != ' ') {
+                    space++;
+                }
+                if (space == data.length) {
+                    break;
+                }
+                final int length;
+                try {
+                    length = Integer.parseInt(new String(data, start, space - start, StandardCharsets.US_ASCII));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed pax record length", e);
+                }
+                if (length <= space - start || length > data.length - start) {
+                    throw new IOException("Pax record of " + length + " bytes");
+                }
+                final String record = new String(data, space + 1, start + length - 1 - (space + 1), StandardCharsets.UTF_8);
+                if (record.startsWith("path=")) {
+                    return record.substring("path=".length());
+                }
+                start += length;
+            }
+            return otherwise;
+        }
+
+        private static String string(byte[] bytes, int offset, int length) {
+            int end = offset;
+            while (end < offset + length && bytes[end] != 0) {
+                end++;
+            }
+            return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // nothing more is read
+            }
+        }
+    }
+}
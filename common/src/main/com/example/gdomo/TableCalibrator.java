@@ -0,0 +1,213 @@
+package com.example.gdomo;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Finds the row of board cards on screenshots of a table size without a layout and makes one by moving and scaling
+ * {@link TableLayout#DEFAULT} onto the cards found. Card faces are the large light rectangles of the screenshot: a row
+ * of them is a band of rows with many light pixels, and the cards are the runs of light columns within the band that
+ * are as wide as a card and evenly spaced. Avatars, buttons and the two cards of the hand never make three of those.
+ * <p>
+ * Run as an application, {@code TableCalibrator <folder> [profile]} calibrates every screenshot size in the folder
+ * that has no layout yet and adds the layouts to the profile file, see {@link TableLayouts}.
+ */
+public class TableCalibrator {
+    private static final int CARD_THRESHOLD = 120;
+    private static final int MIN_CARDS = 3;
+
+    /**
+     * Centre of the first board card, distance between the centres of neighbouring cards and vertical centre of the
+     * row.
+     */
+    record CardRow(double firstCenterX, double pitch, double centerY) {
+    }
+
+    // the row as it is found on screenshots of the default layout
+    private static final CardRow DEFAULT_ROW = new CardRow(175, 71.5, 629.5);
+
+    public static void main(String[] args) throws IOException {
+        final File folder = new File(args[0]);
+        final Path profile = Path.of(args.length > 1 ? args[1] : TableLayouts.PROFILE_FILE);
+
+        final Map<Dimension, List<CardRow>> rows = new LinkedHashMap<>();
+        final Map<Dimension, Integer> screenshots = new HashMap<>();
+        final File[] files = Optional.ofNullable(folder.listFiles()).orElse(new File[0]);
+        Arrays.sort(files);
+        for (File file : files) {
+            final BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                continue;
+            }
+            final Dimension size = new Dimension(image.getWidth(), image.getHeight());
+            screenshots.merge(size, 1, Integer::sum);
+            final List<CardRow> sizeRows = rows.computeIfAbsent(size, s -> new ArrayList<>());
+            final CardRow row = locate(image);
+            if (row != null) {
+                sizeRows.add(row);
+            }
+        }
+
+        final List<TableLayout> layouts = new ArrayList<>(TableLayouts.read(profile));
+        for (Map.Entry<Dimension, List<CardRow>> entry : rows.entrySet()) {
+            final Dimension size = entry.getKey();
+            final String name = size.width + "x" + size.height;
+            if (entry.getValue().isEmpty()) {
+                System.out.println(name + ": no board cards on " + screenshots.get(size) + " screenshots");
+                continue;
+            }
+            final TableLayout layout = layout(size.width, size.height, entry.getValue());
+            final boolean known = TableLayout.DEFAULT.fits(size.width, size.height)
+                    || layouts.stream().anyMatch(existing -> existing.fits(size.width, size.height));
+            System.out.println(name + ": board cards on " + entry.getValue().size() + " of " + screenshots.get(size) + " screenshots, "
+                    + (known ? "keeping the known layout, calibrated " : "calibrated ") + layout.format());
+            if (!known) {
+                layouts.add(layout);
+            }
+        }
+        TableLayouts.write(profile, layouts);
+        System.out.println("Layouts written to " + profile);
+    }
+
+    /**
+     * @return the row of board cards or {@code null} if the screenshot shows fewer than three
+     */
+    static CardRow locate(BufferedImage screenshot) {
+        try {
+            return locate(RasterKernel.of(screenshot), screenshot.getWidth(), screenshot.getHeight());
+        } finally {
+            // screenshots are calibrated on by whichever thread decodes them first
+            RasterKernel.release();
+        }
+    }
+
+    private static CardRow locate(RasterKernel kernel, int width, int height) {
+        final int[] rowCounts = new int[height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (kernel.blue(x, y) >= CARD_THRESHOLD) {
+                    rowCounts[y]++;
+                }
+            }
+        }
+
+        CardRow best = null;
+        int bestCards = MIN_CARDS - 1;
+        final int[] columnCounts = new int[width];
+        int y = 0;
+        while (y < height) {
+            if (rowCounts[y] < width / 16) {
+                y++;
+                continue;
+            }
+            final int top = y;
+            while (y < height && rowCounts[y] >= width / 16) {
+                y++;
+            }
+            final int bandHeight = y - top;
+            if (bandHeight < width / 12 || bandHeight > width / 4) {
+                continue;
+            }
+
+            Arrays.fill(columnCounts, 0);
+            for (int row = top; row < y; row++) {
+                for (int x = 0; x < width; x++) {
+                    if (kernel.blue(x, row) >= CARD_THRESHOLD) {
+                        columnCounts[x]++;
+                    }
+                }
+            }
+            final List<Double> centers = cardCenters(columnCounts, bandHeight);
+
+            // the longest run of evenly spaced cards
+            for (int first = 0; first + bestCards < centers.size(); first++) {
+                final double pitch = centers.get(first + 1) - centers.get(first);
+                int last = first + 1;
+                while (last + 1 < centers.size() && Math.abs(centers.get(last + 1) - centers.get(last) - pitch) <= pitch / 10) {
+                    last++;
+                }
+                if (last - first + 1 > bestCards) {
+                    bestCards = last - first + 1;
+                    best = new CardRow(centers.get(first), (centers.get(last) - centers.get(first)) / (last - first), (top + y) / 2.0);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static List<Double> cardCenters(int[] columnCounts, int bandHeight) {
+        final List<Double> centers = new ArrayList<>();
+        int x = 0;
+        while (x < columnCounts.length) {
+            if (columnCounts[x] < bandHeight / 4) {
+                x++;
+                continue;
+            }
+            final int left = x;
+            while (x < columnCounts.length && columnCounts[x] >= bandHeight / 4) {
+                x++;
+            }
+            // centres rather than edges, a highlighted card has a border of another color
+            if (x - left >= bandHeight * 0.4 && x - left <= bandHeight) {
+                centers.add((left + x) / 2.0);
+            }
+        }
+        return centers;
+    }
+
+    /**
+     * @param rows rows found on screenshots of the size, their medians are taken
+     */
+    static TableLayout layout(int width, int height, List<CardRow> rows) {
+        return layout(width, height, new CardRow(
+                median(rows.stream().mapToDouble(CardRow::firstCenterX).toArray()),
+                median(rows.stream().mapToDouble(CardRow::pitch).toArray()),
+                median(rows.stream().mapToDouble(CardRow::centerY).toArray())));
+    }
+
+    /**
+     * @return the default layout scaled to the size, for screenshots of a size no cards were found on yet
+     */
+    static TableLayout guess(int width, int height) {
+        final double scale = width / (double) TableLayout.DEFAULT.width();
+        return layout(width, height, new CardRow(DEFAULT_ROW.firstCenterX() * scale, DEFAULT_ROW.pitch() * scale,
+                DEFAULT_ROW.centerY() * height / TableLayout.DEFAULT.height()));
+    }
+
+    private static TableLayout layout(int width, int height, CardRow row) {
+        final double scale = row.pitch() / DEFAULT_ROW.pitch();
+        final TableLayout layout = TableLayout.DEFAULT;
+        final int[] offsets = new int[layout.cardSlots()];
+        for (int slot = 0; slot < offsets.length; slot++) {
+            offsets[slot] = (int) Math.round(slot * row.pitch());
+        }
+        final Point probe = layout.backgroundProbe();
+        return new TableLayout(width, height, offsets,
+                new Point(x(probe.x, row, scale), y(probe.y, row, scale)), scale(layout.valueArea(), row, scale), scale(layout.suitArea(), row, scale));
+    }
+
+    private static Rectangle scale(Rectangle area, CardRow row, double scale) {
+        return new Rectangle(x(area.x, row, scale), y(area.y, row, scale),
+                (int) Math.round(area.width * scale), (int) Math.round(area.height * scale));
+    }
+
+    private static int x(int defaultX, CardRow row, double scale) {
+        return (int) Math.round(row.firstCenterX() + (defaultX - DEFAULT_ROW.firstCenterX()) * scale);
+    }
+
+    private static int y(int defaultY, CardRow row, double scale) {
+        return (int) Math.round(row.centerY() + (defaultY - DEFAULT_ROW.centerY()) * scale);
+    }
+
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        final int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * An image holding a table, or a part of it, where {@code origin} is the position of the table's top-left corner
+ * in image coordinates. It is negative for strips cut out of a screenshot. {@code layout} tells where the cards are
+ * on the whole screenshot.
+ */
+public record TableImage(BufferedImage image, Point origin, TableLayout layout) {
+}
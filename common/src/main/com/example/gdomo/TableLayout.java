@@ -0,0 +1,86 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Where the board cards are on a screenshot of {@code width x height}: the horizontal offset of every card slot and,
+ * for the first slot, the pixel telling a card from the table background and the value and suit glyph areas.
+ * <p>
+ * In a profile file a layout is one line: {@code 636x1166 offsets=0,72,143,215,287 background=153,650
+ * value=148,590,30,25 suit=170,633,30,35}.
+ */
+public record TableLayout(int width, int height, int[] cardOffsetsX, Point backgroundProbe, Rectangle valueArea, Rectangle suitArea) {
+    /**
+     * The layout the recognizers were made for, glyph templates and key pixel trees have the size of its areas.
+     */
+    public static final TableLayout DEFAULT = new TableLayout(636, 1166,
+            new int[]{0, 72, 143, 215, 287}, new Point(153, 650), new Rectangle(148, 590, 30, 25), new Rectangle(170, 633, 30, 35));
+
+    public int cardSlots() {
+        return cardOffsetsX.length;
+    }
+
+    public int cardOffsetX(int slot) {
+        return cardOffsetsX[slot];
+    }
+
+    /**
+     * @return first screenshot row the recognizers read
+     */
+    public int stripTop() {
+        return Math.min(backgroundProbe.y, Math.min(valueArea.y, suitArea.y));
+    }
+
+    /**
+     * @return screenshot row after the last one the recognizers read
+     */
+    public int stripBottom() {
+        return Math.max(backgroundProbe.y + 1, Math.max(valueArea.y + valueArea.height, suitArea.y + suitArea.height));
+    }
+
+    public boolean fits(int width, int height) {
+        return this.width == width && this.height == height;
+    }
+
+    public String format() {
+        return width + "x" + height
+                + " offsets=" + Arrays.stream(cardOffsetsX).mapToObj(String::valueOf).collect(Collectors.joining(","))
+                + " background=" + backgroundProbe.x + "," + backgroundProbe.y
+                + " value=" + format(valueArea)
+                + " suit=" + format(suitArea);
+    }
+
+    public static TableLayout parse(String line) {
+        final String[] fields = line.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Expected size, offsets, background, value and suit in table layout: " + line);
+        }
+        final int[] size = numbers(fields[0].split("x"), 2, line);
+        final int[] offsets = numbers(field(fields[1], "offsets", line), -1, line);
+        final int[] probe = numbers(field(fields[2], "background", line), 2, line);
+        final int[] value = numbers(field(fields[3], "value", line), 4, line);
+        final int[] suit = numbers(field(fields[4], "suit", line), 4, line);
+        return new TableLayout(size[0], size[1], offsets, new Point(probe[0], probe[1]),
+                new Rectangle(value[0], value[1], value[2], value[3]), new Rectangle(suit[0], suit[1], suit[2], suit[3]));
+    }
+
+    private static String format(Rectangle area) {
+        return area.x + "," + area.y + "," + area.width + "," + area.height;
+    }
+
+    private static String[] field(String field, String name, String line) {
+        if (!field.startsWith(name + "=")) {
+            throw new IllegalArgumentException("Expected " + name + " in table layout: " + line);
+        }
+        return field.substring(name.length() + 1).split(",");
+    }
+
+    private static int[] numbers(String[] values, int count, String line) {
+        if (count >= 0 && values.length != count || values.length == 0) {
+            throw new IllegalArgumentException("Wrong number of values in table layout: " + line);
+        }
+        return Arrays.stream(values).mapToInt(Integer::parseInt).toArray();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.List;
+
+/**
+ * The table layouts known by screenshot size: {@link TableLayout#DEFAULT} and those of the profile file
+ * {@code brainshells.layouts} ({@code table-layouts.txt} in the working directory by default), which take precedence.
+ * A profile that cannot be read is reported and the built-in layout is used alone.
+ * <p>
+ * A screenshot of a size without a layout is calibrated on, see {@link TableCalibrator}. Once board cards were found on
+ * {@code brainshells.layouts.calibrationFrames} screenshots of the size (3 by default) the layout is kept, and from
+ * then on looking it up is a scan of a few sizes. The profile file is only read: layouts are written to it by
+ * {@link TableCalibrator}, or as they are calibrated with {@code brainshells.layouts.persist}.
+ */
+public class TableLayouts {
+    static final String PROFILE_FILE = System.getProperty("brainshells.layouts", "table-layouts.txt");
+    private static final int CALIBRATION_FRAMES = Integer.getInteger("brainshells.layouts.calibrationFrames", 3);
+    private static final boolean PERSIST = Boolean.getBoolean("brainshells.layouts.persist");
+
+    private static volatile TableLayout[] layouts = merge(List.of(TableLayout.DEFAULT), readProfile()).toArray(new TableLayout[0]);
+
+    // rows of board cards found on screenshots of sizes still being calibrated, guarded by the class
+    private static final Map<Dimension, List<TableCalibrator.CardRow>> CALIBRATING = new HashMap<>();
+
+    /**
+     * @return the layout of screenshots of the size or {@code null} if there is none yet
+     */
+    public static TableLayout forSize(int width, int height) {
+        for (TableLayout layout : layouts) {
+            if (layout.fits(width, height)) {
+                return layout;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param screenshot a whole screenshot
+     * @return the layout for the screenshot size, a provisional one while the size is being calibrated
+     */
+    public static TableLayout forImage(BufferedImage screenshot) {
+        final TableLayout layout = forSize(screenshot.getWidth(), screenshot.getHeight());
+        return layout != null ? layout : calibrate(screenshot);
+    }
+
+    public static List<TableLayout> layouts() {
+        return List.of(layouts);
+    }
+
+    private static synchronized TableLayout calibrate(BufferedImage screenshot) {
+        final int width = screenshot.getWidth();
+        final int height = screenshot.getHeight();
+        final TableLayout known = forSize(width, height);
+        if (known != null) {
+            return known;
+        }
+
+        final List<TableCalibrator.CardRow> rows = CALIBRATING.computeIfAbsent(new Dimension(width, height), size -> new ArrayList<>());
+        final TableCalibrator.CardRow row = TableCalibrator.locate(screenshot);
+        if (row != null) {
+            rows.add(row);
+        }
+        if (rows.isEmpty()) {
+            return TableCalibrator.guess(width, height);
+        }
+
+        final TableLayout layout = TableCalibrator.layout(width, height, rows);
+        if (rows.size() >= CALIBRATION_FRAMES) {
+            CALIBRATING.remove(new Dimension(width, height));
+            layouts = merge(List.of(layouts), List.of(layout)).toArray(new TableLayout[0]);
+            if (PERSIST) {
+                try {
+                    final Path profile = Path.of(PROFILE_FILE);
+                    write(profile, merge(read(profile), List.of(layout)));
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Could not write table layout " + layout.format() + " to " + PROFILE_FILE + ": " + e);
+                }
+            }
+        }
+        return layout;
+    }
+
+    private static List<TableLayout> readProfile() {
+        try {
+            return read(Path.of(PROFILE_FILE));
+        } catch (RuntimeException e) {
+            System.err.println("Could not read table layouts from " + PROFILE_FILE + ", using the built-in layout: " + e);
+            return List.of();
+        }
+    }
+
+    static List<TableLayout> read(Path profile) {
+        if (!Files.exists(profile)) {
+            return List.of();
+        }
+        try {
+            final List<TableLayout> layouts = new ArrayList<>();
+            for (String line : Files.readAllLines(profile, StandardCharsets.UTF_8)) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    layouts.add(TableLayout.parse(line));
+                }
+            }
+            return layouts;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static void write(Path profile, List<TableLayout> layouts) throws IOException {
+        final StringBuilder text = new StringBuilder("# screenshot size, card offsets, background probe and value and suit areas of the first card\n");
+        for (TableLayout layout : layouts) {
+            text.append(layout.format()).append('\n');
+        }
+        // recognizers starting meanwhile never read a half written file
+        final Path temporary = profile.resolveSibling(profile.getFileName() + ".tmp");
+        Files.writeString(temporary, text, StandardCharsets.UTF_8);
+        Files.move(temporary, profile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return {@code layouts} with {@code added} replacing the layouts of the same size
+     */
+    private static List<TableLayout> merge(List<TableLayout> layouts, List<TableLayout> added) {
+        final List<TableLayout> merged = new ArrayList<>(added);
+        for (TableLayout layout : layouts) {
+            if (added.stream().noneMatch(other -> other.fits(layout.width(), layout.height()))) {
+                merged.add(layout);
+            }
+        }
+        return merged;
+    }
+}
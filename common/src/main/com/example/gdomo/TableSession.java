@@ -0,0 +1,151 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recognizes the frames of one table one after another and reports the cards that changed. Every slot is fingerprinted
+ * by its value and suit areas and background probe, and recognized again only when the fingerprint differs from that of
+ * the previous frame. Board cards stay for dozens of frames, so most frames cost a hash of a quarter of the slot area
+ * pixels instead of reading them all, matching and probing per slot. For the key pixel engine, which reads only a
+ * dozen pixels per card, hashing costs more than recognizing again.
+ * <p>
+ * The fingerprint reads only a grid of the pixels, so a change that keeps to pixels off the grid, a single pixel say,
+ * keeps the old card. A slot is therefore recognized again after {@value #RECOGNIZED_EVERY} frames however unchanged
+ * it looks: a change the fingerprint misses is reported that many frames late at most. Hashing every pixel instead
+ * costs about as much as recognizing.
+ * <p>
+ * A session belongs to one table and is not thread-safe. A frame in another layout than the previous one recognizes
+ * every slot again.
+ */
+public class TableSession {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int RECOGNIZED_EVERY = 16;
+
+    /**
+     * The card of a slot, counted from the left, changed: {@code previous} is {@code null} for a card that appeared and
+     * {@code current} for a card that disappeared.
+     */
+    public record CardChange(int slot, Card previous, Card current) {
+        public String description() {
+            if (previous == null) {
+                return "card " + (slot + 1) + " appeared: " + current.description();
+            } else if (current == null) {
+                return "card " + (slot + 1) + " disappeared: " + previous.description();
+            }
+            return "card " + (slot + 1) + " changed: " + previous.description() + " -> " + current.description();
+        }
+    }
+
+    private final CardSlotRecognizer recognizer;
+    private TableLayout layout;
+    private long[] fingerprints = new long[0];
+    private boolean[] fingerprinted = new boolean[0];
+    private int[] kept = new int[0];
+    private Card[] cards = new Card[0];
+    private long recognitions;
+
+    public TableSession(CardSlotRecognizer recognizer) {
+        this.recognizer = recognizer;
+    }
+
+    /**
+     * @return changes of the cards since the previous frame, ordered by slot
+     */
+    public List<CardChange> next(BufferedImage image, Point origin, TableLayout layout) {
+        if (layout != this.layout) {
+            this.layout = layout;
+            fingerprints = new long[layout.cardSlots()];
+            fingerprinted = new boolean[layout.cardSlots()];
+            kept = new int[layout.cardSlots()];
+            cards = new Card[layout.cardSlots()];
+        }
+
+        final List<CardChange> changes = new ArrayList<>(0);
+        boolean ended = false;
+        for (int slot = 0; slot < cards.length; slot++) {
+            Card card = null;
+            if (ended) {
+                // slots after the first empty one are not read, as with a whole hand
+                fingerprinted[slot] = false;
+            } else {
+                final long fingerprint = fingerprint(image, origin, layout, slot);
+                if (fingerprinted[slot] && fingerprints[slot] == fingerprint && kept[slot] < RECOGNIZED_EVERY - 1) {
+                    card = cards[slot];
+                    kept[slot]++;
+                } else {
+                    card = recognizer.recognizeCard(image, origin, layout, slot);
+                    recognitions++;
+                    fingerprints[slot] = fingerprint;
+                    fingerprinted[slot] = true;
+                    kept[slot] = 0;
+                }
+                ended = card == null;
+            }
+
+            if (!sameCard(cards[slot], card)) {
+                changes.add(new CardChange(slot, cards[slot], card));
+            }
+            cards[slot] = card;
+        }
+        RasterKernel.release();
+        return changes;
+    }
+
+    /**
+     * @return the cards of the last frame, ordered by slot
+     */
+    public List<Card> cards() {
+        final List<Card> hand = new ArrayList<>(cards.length);
+        for (Card card : cards) {
+            if (card == null) {
+                break;
+            }
+            hand.add(card);
+        }
+        return hand;
+    }
+
+    /**
+     * @return how many slots were recognized, the rest of the slots of all frames kept their card
+     */
+    public long recognitions() {
+        return recognitions;
+    }
+
+    private static boolean sameCard(Card previous, Card current) {
+        if (previous == null || current == null) {
+            return previous == current;
+        }
+        return previous.value().equals(current.value()) && previous.suit().equals(current.suit());
+    }
+
+    /**
+     * Sums every other pixel of every other row, weighted by distinct odd multipliers. Glyph strokes are wider than two
+     * pixels, so two different cards are expected to differ in pixels of the grid, while pixels off it are not read.
+     * The multipliers being odd, changing a single pixel of the grid always changes the sum, while changes of several
+     * leave it as it was only if their weighted differences happen to cancel out. The terms are independent, so the
+     * sum is also faster than a chained hash.
+     */
+    private static long fingerprint(BufferedImage image, Point origin, TableLayout layout, int slot) {
+        final RasterKernel kernel = RasterKernel.of(image);
+        final int cardOffset = layout.cardOffsetX(slot);
+        final Point probe = layout.backgroundProbe();
+        final long hash = kernel.argb(origin.x + cardOffset + probe.x, origin.y + probe.y) * GOLDEN_GAMMA;
+        return hash + sum(kernel, origin, layout.valueArea(), cardOffset, 1) + sum(kernel, origin, layout.suitArea(), cardOffset, 3);
+    }
+
+    private static long sum(RasterKernel kernel, Point origin, Rectangle area, int cardOffset, long multiplier) {
+        final int x = origin.x + area.x + cardOffset;
+        final int y = origin.y + area.y;
+        long sum = 0;
+        for (int row = 0; row < area.height; row += 2) {
+            for (int column = 0; column < area.width; column += 2, multiplier += 4) {
+                sum += (kernel.argb(x + column, y + row) & 0xFFFFFFFFL) * (multiplier * GOLDEN_GAMMA | 1);
+            }
+        }
+        return sum;
+    }
+}
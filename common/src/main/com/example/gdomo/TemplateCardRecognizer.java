@@ -0,0 +1,109 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Recognizes the card of a slot by its value and suit areas, scaled to the size of the templates, looked up in a
+ * {@link GlyphCache} and matched otherwise: what the template matching engines share. An engine brings how an area
+ * becomes a glyph and how the closest template of a glyph is found.
+ */
+public class TemplateCardRecognizer implements CardSlotRecognizer {
+    private static final int BACKGROUND_THRESHOLD = 120;
+
+    public interface Normalizer {
+        /**
+         * @param argb  area pixels of {@code size}, may be changed
+         * @param glyph cleared glyph to normalize into
+         */
+        long[] normalize(int[] argb, Dimension size, long[] glyph);
+    }
+
+    public interface Templates {
+        GlyphMatch closest(long[] glyph);
+    }
+
+    private final String engine;
+    private final RecognitionMetrics metrics;
+    private final Normalizer normalizer;
+    private final Dimension valueSize;
+    private final Templates values;
+    private final GlyphCache valueCache;
+    private final Dimension suitSize;
+    private final Templates suits;
+    private final GlyphCache suitCache;
+
+    public TemplateCardRecognizer(String engine, Normalizer normalizer, Dimension valueSize, Templates values, Dimension suitSize, Templates suits) {
+        this.engine = engine;
+        this.metrics = RecognitionMetrics.forComponent(engine);
+        this.normalizer = normalizer;
+        this.valueSize = valueSize;
+        this.values = values;
+        this.valueCache = GlyphCache.configured(engine + "/values");
+        this.suitSize = suitSize;
+        this.suits = suits;
+        this.suitCache = GlyphCache.configured(engine + "/suits");
+        metrics.addCache("valueCache", valueCache);
+        metrics.addCache("suitCache", suitCache);
+    }
+
+    @Override
+    public Card recognizeCard(BufferedImage image, Point origin, TableLayout layout, int slot) {
+        final int cardOffset = layout.cardOffsetX(slot);
+        final long started = RecognitionMetrics.now();
+        final boolean background = isBackground(image, origin, layout.backgroundProbe(), cardOffset);
+        metrics.record(RecognitionMetrics.Stage.BACKGROUND, started);
+        if (background) {
+            return null;
+        }
+
+        final GlyphMatch value = match(image, origin, layout.valueArea(), valueSize, cardOffset, valueCache, this::matchValue);
+        final GlyphMatch suit = match(image, origin, layout.suitArea(), suitSize, cardOffset, suitCache, this::matchSuit);
+        return new Card(slot, value.key(), suit.key(), Math.min(value.confidence(), suit.confidence()), engine);
+    }
+
+    private GlyphMatch match(BufferedImage image, Point origin, Rectangle area, Dimension size, int cardOffset, GlyphCache cache, GlyphCache.Matcher matcher) {
+        final long started = RecognitionMetrics.now();
+        final int[] argb = getAreaPixels(image, origin, area, size, cardOffset);
+        final long cropped = metrics.record(RecognitionMetrics.Stage.CROP, started);
+        final GlyphMatch match = cache.match(argb, matcher);
+        metrics.record(RecognitionMetrics.Stage.LOOKUP, cropped);
+        metrics.recordMatch(match);
+        return match;
+    }
+
+    /**
+     * @param argb value area pixels of the template size, may be changed
+     */
+    public GlyphMatch matchValue(int[] argb) {
+        return matchNormalized(argb, valueSize, values);
+    }
+
+    /**
+     * @param argb suit area pixels of the template size, may be changed
+     */
+    public GlyphMatch matchSuit(int[] argb) {
+        return matchNormalized(argb, suitSize, suits);
+    }
+
+    private GlyphMatch matchNormalized(int[] argb, Dimension size, Templates templates) {
+        final long started = RecognitionMetrics.now();
+        final long[] glyph = normalizer.normalize(argb, size, RasterKernel.forCurrentThread().glyph(argb.length));
+        final long normalized = metrics.record(RecognitionMetrics.Stage.NORMALIZE, started);
+        final GlyphMatch match = templates.closest(glyph);
+        metrics.record(RecognitionMetrics.Stage.MATCH, normalized);
+        return match;
+    }
+
+    public static boolean isBackground(BufferedImage image, Point origin, Point probe, int cardOffset) {
+        return RasterKernel.of(image).blue(origin.x + cardOffset + probe.x, origin.y + probe.y) < BACKGROUND_THRESHOLD;
+    }
+
+    /**
+     * @return scratch array of this thread with the area scaled to {@code size}, see
+     * {@link RasterKernel#readArea(int, int, int, int, int, int)}
+     */
+    public static int[] getAreaPixels(BufferedImage image, Point origin, Rectangle area, Dimension size, int cardOffset) {
+        return RasterKernel.of(image).readArea(origin.x + area.x + cardOffset, origin.y + area.y, area.width, area.height, size.width, size.height);
+    }
+}
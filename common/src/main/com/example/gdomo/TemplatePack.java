@@ -0,0 +1,116 @@
+package com.example.gdomo;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Named sets of normalized glyphs, packed with {@link BinaryGlyphs}, stored in a binary file, so recognizers start
+ * without rendering or decoding any image. A pack is a few kilobytes and matching needs every glyph as a
+ * {@code long[]}, so it is read into memory at once.
+ * <p>
+ * Big-endian layout: magic {@code BSTP}, format version, set count, then for every set its name, glyph width and
+ * height, glyph count and the glyphs as a key followed by {@code (width * height + 63) / 64} longs.
+ * Strings are a short byte length followed by UTF-8 bytes.
+ */
+public record TemplatePack(Map<String, TemplateSet> sets) {
+    private static final int MAGIC = 0x42535450;
+    private static final int VERSION = 1;
+
+    public record TemplateSet(int width, int height, Map<String, long[]> glyphs) {
+    }
+
+    public Map<String, long[]> glyphs(String set, int width, int height) {
+        final TemplateSet templateSet = sets.get(set);
+        if (templateSet == null) {
+            throw new IllegalArgumentException("No template set " + set + " in the pack");
+        }
+        if (templateSet.width() != width || templateSet.height() != height) {
+            throw new IllegalArgumentException("Template set " + set + " is " + templateSet.width() + "x" + templateSet.height() + ", expected " + width + "x" + height);
+        }
+        return templateSet.glyphs();
+    }
+
+    public static TemplatePack read(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    public static TemplatePack readFromClasspath(String filename) {
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(filename)) {
+            if (in == null) {
+                throw new RuntimeException("No " + filename + " on the classpath");
+            }
+            return read(in);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static TemplatePack read(InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a template pack");
+        }
+        final int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported template pack version " + version);
+        }
+
+        final Map<String, TemplateSet> sets = new LinkedHashMap<>();
+        final int setCount = data.readInt();
+        for (int i = 0; i < setCount; i++) {
+            final String name = readString(data);
+            final int width = data.readInt();
+            final int height = data.readInt();
+            final int glyphCount = data.readInt();
+            final Map<String, long[]> glyphs = new LinkedHashMap<>();
+            for (int j = 0; j < glyphCount; j++) {
+                final String key = readString(data);
+                final long[] glyph = BinaryGlyphs.allocate(width * height);
+                for (int word = 0; word < glyph.length; word++) {
+                    glyph[word] = data.readLong();
+                }
+                glyphs.put(key, glyph);
+            }
+            sets.put(name, new TemplateSet(width, height, glyphs));
+        }
+        return new TemplatePack(sets);
+    }
+
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sets.size());
+            for (Map.Entry<String, TemplateSet> set : sets.entrySet()) {
+                writeString(out, set.getKey());
+                out.writeInt(set.getValue().width());
+                out.writeInt(set.getValue().height());
+                out.writeInt(set.getValue().glyphs().size());
+                for (Map.Entry<String, long[]> glyph : set.getValue().glyphs().entrySet()) {
+                    writeString(out, glyph.getKey());
+                    for (long word : glyph.getValue()) {
+                        out.writeLong(word);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
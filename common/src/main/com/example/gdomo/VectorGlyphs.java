@@ -0,0 +1,65 @@
+package com.example.gdomo;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link BinaryGlyphs#binarize(int[], long[])} in SIMD lanes of the preferred vector size. Loaded only when the JVM
+ * runs with {@code --add-modules jdk.incubator.vector}, see {@link BinaryGlyphs}.
+ */
+class VectorGlyphs {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * @return whether the dark lanes of a vector fit into one word of a glyph
+     */
+    static boolean supported() {
+        return Long.SIZE % SPECIES.length() == 0;
+    }
+
+    static long[] binarize(int[] argb, long[] glyph) {
+        final int lanes = SPECIES.length();
+        final int bound = SPECIES.loopBound(argb.length);
+
+        // sums of the channels rather than grays: a vector has no cheap division by 3
+        IntVector minSums = IntVector.broadcast(SPECIES, Integer.MAX_VALUE);
+        IntVector maxSums = IntVector.broadcast(SPECIES, Integer.MIN_VALUE);
+        int i = 0;
+        for (; i < bound; i += lanes) {
+            final IntVector sums = channelSums(IntVector.fromArray(SPECIES, argb, i));
+            minSums = minSums.min(sums);
+            maxSums = maxSums.max(sums);
+        }
+        int min = minSums.reduceLanes(VectorOperators.MIN);
+        int max = maxSums.reduceLanes(VectorOperators.MAX);
+        for (; i < argb.length; i++) {
+            min = Math.min(min, channelSum(argb[i]));
+            max = Math.max(max, channelSum(argb[i]));
+        }
+
+        // a gray is the sum divided by 3 and rounded down, it is below a threshold exactly when the sum is below
+        // 3 times the threshold
+        final int threshold = 3 * ((max / 3 + min / 3) / 2);
+        for (i = 0; i < bound; i += lanes) {
+            final long dark = channelSums(IntVector.fromArray(SPECIES, argb, i)).compare(VectorOperators.LT, threshold).toLong();
+            glyph[i >>> 6] |= dark << i;
+        }
+        for (; i < argb.length; i++) {
+            if (channelSum(argb[i]) < threshold) {
+                glyph[i >>> 6] |= 1L << i;
+            }
+        }
+        return glyph;
+    }
+
+    private static IntVector channelSums(IntVector argb) {
+        return argb.lanewise(VectorOperators.LSHR, 16).lanewise(VectorOperators.AND, 0xFF)
+                .add(argb.lanewise(VectorOperators.LSHR, 8).lanewise(VectorOperators.AND, 0xFF))
+                .add(argb.lanewise(VectorOperators.AND, 0xFF));
+    }
+
+    private static int channelSum(int argb) {
+        return (argb >> 16 & 0xFF) + (argb >> 8 & 0xFF) + (argb & 0xFF);
+    }
+}
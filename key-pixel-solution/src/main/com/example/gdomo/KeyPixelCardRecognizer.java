@@ -1,78 +1,126 @@
 package com.example.gdomo;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.function.BiConsumer;
 
 public class KeyPixelCardRecognizer {
-    private static final int[] CARD_OFFSETS_X = new int[]{0, 72, 143, 215, 287};
+    private static final String NAME = "key-pixel";
 
-    private static final Point BACKGROUND_PROBE = new Point(153, 650);
-    private static final Point VALUE_AREA_CORNER = new Point(148, 590);
-    private static final Point SUIT_AREA_CORNER = new Point(170, 633);
+    // the trees probe pixels of areas of this size, layouts with other areas are refused
+    static final Dimension VALUE_TREE_AREA = TableLayout.DEFAULT.valueArea().getSize();
+    static final Dimension SUIT_TREE_AREA = TableLayout.DEFAULT.suitArea().getSize();
 
     private static final int BLUE_THRESHOLD = 120;
 
-    public static void main(String[] args) throws IOException {
-        recognizeCards(args[0], ((file, cards) -> System.out.println(file.getName() + " - " + cards)));
+    /**
+     * The chosen key and the smallest distance from the blue threshold among the probes walked to reach it.
+     */
+    record Decision(String key, int margin) {
+        double confidence() {
+            return Math.min(1.0, margin / (double) BLUE_THRESHOLD);
+        }
+    }
+
+    static final CardStripDecoder STRIP_DECODER = new CardStripDecoder();
+
+    static final String TREES_RESOURCE = "key-pixel-trees.txt";
+    static final String SUIT_TREE_NAME = "suit";
+    static final String VALUE_TREE_NAME = "value";
+
+    private static final KeyPixelTree[] TREES = loadTrees();
+    static final KeyPixelTree SUIT_TREE = TREES[0];
+    static final KeyPixelTree VALUE_TREE = TREES[1];
+
+    public static final CardEngine ENGINE = new CardEngine(NAME, STRIP_DECODER, KeyPixelCardRecognizer::recognizeCard);
+    private static final RecognitionMetrics METRICS = ENGINE.metrics();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ENGINE.run(args);
     }
 
     public static void recognizeCards(String folder, BiConsumer<File, String> onRecognized) throws IOException {
-        final LinkedHashMap<String, Point> suitDecisionSequence = new LinkedHashMap<>();
-        suitDecisionSequence.put("h", new Point(4, 7));
-        suitDecisionSequence.put("c", new Point(9, 4));
-        suitDecisionSequence.put("s", new Point(0, 19));
-        suitDecisionSequence.put("d", new Point(13, 2));
-
-        final LinkedHashMap<String, Point> valueDecisionSequence = new LinkedHashMap<>();
-        valueDecisionSequence.put("10", new Point(1, 3));
-        valueDecisionSequence.put("Q", new Point(21, 5));
-        valueDecisionSequence.put("A", new Point(1, 23));
-        valueDecisionSequence.put("K", new Point(21, 2));
-        valueDecisionSequence.put("4", new Point(10, 8));
-        valueDecisionSequence.put("J", new Point(13, 18));
-        valueDecisionSequence.put("3", new Point(13, 7));
-        valueDecisionSequence.put("2", new Point(4, 23));
-        valueDecisionSequence.put("7", new Point(9, 17));
-        valueDecisionSequence.put("9", new Point(11, 14));
-        valueDecisionSequence.put("8", new Point(16, 8));
-        valueDecisionSequence.put("6", new Point(4, 14));
-        valueDecisionSequence.put("5", new Point(6, 2));
-
-        final File[] files = Optional.ofNullable(new File(folder).listFiles()).orElse(new File[0]);
-        for (File file : files) {
-            final BufferedImage image = ImageIO.read(file);
-            final StringBuilder descriptionBuilder = new StringBuilder();
-            for (int cardOffset : CARD_OFFSETS_X) {
-                if (probeBlue(image, new Point(0, 0), cardOffset, BACKGROUND_PROBE)) {
-                    break;
-                }
-
-                descriptionBuilder.append(applyDecisionSequence(image, valueDecisionSequence, VALUE_AREA_CORNER, cardOffset));
-                descriptionBuilder.append(applyDecisionSequence(image, suitDecisionSequence, SUIT_AREA_CORNER, cardOffset));
-            }
-            onRecognized.accept(file, descriptionBuilder.toString());
+        ENGINE.recognizeCards(folder, onRecognized);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the areas of the layout are not of the size the trees probe, see
+     *                                  {@link #probesUnscaled(TableLayout)}
+     */
+    static Card recognizeCard(BufferedImage image, Point origin, TableLayout layout, int slot) {
+        if (!probesUnscaled(layout)) {
+            throw new IllegalArgumentException("Key pixel trees probe value and suit areas of " + size(VALUE_TREE_AREA) + " and " + size(SUIT_TREE_AREA)
+                    + ", those of " + layout.width() + "x" + layout.height() + " screenshots are " + size(layout.valueArea().getSize())
+                    + " and " + size(layout.suitArea().getSize()));
         }
+        final int cardOffset = layout.cardOffsetX(slot);
+        final long started = RecognitionMetrics.now();
+        final boolean background = probeBlue(image, origin, cardOffset, layout.backgroundProbe());
+        final long probed = METRICS.record(RecognitionMetrics.Stage.BACKGROUND, started);
+        if (background) {
+            return null;
+        }
+
+        final Decision value = decide(image, origin, VALUE_TREE, layout.valueArea(), cardOffset);
+        final Decision suit = decide(image, origin, SUIT_TREE, layout.suitArea(), cardOffset);
+        METRICS.record(RecognitionMetrics.Stage.MATCH, probed);
+        METRICS.recordMargin(value.margin());
+        METRICS.recordMargin(suit.margin());
+        return new Card(slot, value.key(), suit.key(), Math.min(value.confidence(), suit.confidence()), NAME);
     }
 
-    private static String applyDecisionSequence(BufferedImage image, HashMap<String, Point> decisionSequence, Point areaCorner, int cardOffset) {
-        for (Map.Entry<String, Point> entry : decisionSequence.entrySet()) {
-            if (probeBlue(image, areaCorner, cardOffset, entry.getValue())) {
-                return entry.getKey();
-            }
+    /**
+     * @return whether the probes read the areas of the layout pixel for pixel. Scaled probes would land next to the
+     * pixels the trees were learned on and decide wrong on most screenshots of another size.
+     */
+    static boolean probesUnscaled(TableLayout layout) {
+        return layout.valueArea().getSize().equals(VALUE_TREE_AREA) && layout.suitArea().getSize().equals(SUIT_TREE_AREA);
+    }
+
+    private static String size(Dimension size) {
+        return size.width + "x" + size.height;
+    }
+
+    static Decision decide(BufferedImage image, Point origin, KeyPixelTree tree, Rectangle area, int cardOffset) {
+        final int x = origin.x + area.x + cardOffset;
+        final int y = origin.y + area.y;
+        int margin = Integer.MAX_VALUE;
+        int node = 0;
+        while (!tree.isLeaf(node)) {
+            final int blue = getBlue(image, x + tree.probeX(node), y + tree.probeY(node));
+            margin = Math.min(margin, Math.abs(blue - BLUE_THRESHOLD));
+            node = tree.next(node, blue < BLUE_THRESHOLD);
         }
 
-        return "";
+        return new Decision(tree.key(node), margin);
+    }
+
+    static boolean probeBlue(BufferedImage image, Point origin, int cardOffset, Point point) {
+        return getBlue(image, origin.x + cardOffset + point.x, origin.y + point.y) < BLUE_THRESHOLD;
+    }
+
+    private static int getBlue(BufferedImage image, int x, int y) {
+        return RasterKernel.of(image).blue(x, y);
     }
 
-    private static boolean probeBlue(BufferedImage image, Point areaCorner, int cardOffset, Point point) {
-        return new Color(image.getRGB(areaCorner.x + cardOffset + point.x, areaCorner.y + point.y)).getBlue() < BLUE_THRESHOLD;
+    /**
+     * Trees retrained by {@link KeyPixelExtractor} can be used without a rebuild by pointing
+     * {@code brainshells.keyPixel.trees} at the written file.
+     */
+    private static KeyPixelTree[] loadTrees() {
+        final String treesFile = System.getProperty("brainshells.keyPixel.trees");
+        if (treesFile == null) {
+            return KeyPixelTree.readFromClasspath(TREES_RESOURCE, SUIT_TREE_NAME, VALUE_TREE_NAME);
+        }
+        try (Reader reader = new FileReader(treesFile, StandardCharsets.UTF_8)) {
+            return KeyPixelTree.read(reader, SUIT_TREE_NAME, VALUE_TREE_NAME);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 }
@@ -1,166 +1,216 @@
 package com.example.gdomo;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 public class KeyPixelExtractor {
-    private static final int[] CARD_OFFSETS_X = new int[]{0, 72, 143, 215, 287};
-
-    private static final Rectangle VALUE_AREA = new Rectangle(148, 590, 30, 25);
-    private static final Rectangle SUIT_AREA = new Rectangle(170, 633, 30, 35);
+    private static final CardStripDecoder STRIP_DECODER = new CardStripDecoder();
 
     private static final int BLUE_THRESHOLD = 120;
+    // pixels this close to the threshold may well flip on the next screenshot
+    private static final int UNCERTAIN_MARGIN = 30;
+
+    private static final String DEFAULT_OUTPUT = "src/resources/" + KeyPixelCardRecognizer.TREES_RESOURCE;
+
+    /**
+     * Card area of a group as bit masks of dark pixels and of pixels too close to the threshold to rely on.
+     * Equal samples are counted rather than kept, so a large corpus shrinks to its distinct glyphs.
+     */
+    record Sample(String group, long[] dark, long[] uncertain) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Sample sample && group.equals(sample.group) && Arrays.equals(dark, sample.dark) && Arrays.equals(uncertain, sample.uncertain);
+        }
 
-    record PixelsSet(
-            Set<Integer> mandatoryPixels,
-            Set<Integer> probablePixels
-    ) {
-    }
-
-    public static void main(String[] args) {
-        final File inputFolder = new File(args[0]);
-
-        final Map<Character, List<BufferedImage>> suitToImages = new HashMap<>();
-        final Map<String, List<BufferedImage>> valueToImages = new HashMap<>();
-        populateAreaSubimages(inputFolder, suitToImages, valueToImages);
-
-        final HashMap<Character, PixelsSet> suitToPixels = getValuablePixels(suitToImages);
-        final HashMap<String, PixelsSet> valueToPixels = getValuablePixels(valueToImages);
-
-        findAndPrintKeyPixels(suitToPixels, true, 30);
-        System.out.println();
-        findAndPrintKeyPixels(valueToPixels, true, 30);
+        @Override
+        public int hashCode() {
+            return 31 * (31 * group.hashCode() + Arrays.hashCode(dark)) + Arrays.hashCode(uncertain);
+        }
     }
 
-    private static void populateAreaSubimages(File inputFolder, Map<Character, List<BufferedImage>> suitToImages, Map<String, List<BufferedImage>> valueToImages) {
-        Arrays.stream(Optional.ofNullable(inputFolder.listFiles()).orElse(new File[0])).forEach(file -> {
-            final BufferedImage image;
-            try {
-                image = ImageIO.read(file);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+    record Split(int pixel, boolean pure, double gain, long uncertain) {
+        boolean isBetterThan(Split other) {
+            if (other == null || pure != other.pure) {
+                return other == null || pure;
             }
-
-            String cards = file.getName().substring(0, file.getName().length() - ".png".length());
-            int cardNum = 0;
-            while (!cards.isEmpty()) {
-                final String value = cards.startsWith("10") ? "10" : cards.substring(0, 1);
-                cards = cards.substring(value.length());
-
-                final char suit = cards.charAt(0);
-                cards = cards.substring(1);
-
-                BufferedImage suitSubimage = image.getSubimage(CARD_OFFSETS_X[cardNum] + SUIT_AREA.x, SUIT_AREA.y, SUIT_AREA.width, SUIT_AREA.height);
-                BufferedImage valueSubimage = image.getSubimage(CARD_OFFSETS_X[cardNum] + VALUE_AREA.x, VALUE_AREA.y, VALUE_AREA.width, VALUE_AREA.height);
-
-                suitToImages.computeIfAbsent(suit, v -> new ArrayList<>()).add(suitSubimage);
-                valueToImages.computeIfAbsent(value, v -> new ArrayList<>()).add(valueSubimage);
-
-                cardNum++;
+            if (Math.abs(gain - other.gain) > 1e-9) {
+                return gain > other.gain;
             }
-        });
+            return uncertain < other.uncertain;
+        }
     }
 
-    private static <T> HashMap<T, PixelsSet> getValuablePixels(Map<T, List<BufferedImage>> groupToImages) {
-        final HashMap<T, PixelsSet> groupToPixels = new HashMap<>();
-        for (Map.Entry<T, List<BufferedImage>> entry : groupToImages.entrySet()) {
-            final T group = entry.getKey();
-            final List<BufferedImage> images = entry.getValue();
+    public static void main(String[] args) throws IOException {
+        final File inputFolder = new File(args[0]);
+        final File outputFile = new File(args.length > 1 ? args[1] : DEFAULT_OUTPUT);
+
+        final Map<Sample, Long> suitSamples = new ConcurrentHashMap<>();
+        final Map<Sample, Long> valueSamples = new ConcurrentHashMap<>();
+        Arrays.stream(Optional.ofNullable(inputFolder.listFiles()).orElse(new File[0]))
+                .parallel()
+                .forEach(file -> {
+                    try {
+                        addSamples(file, suitSamples, valueSamples);
+                    } finally {
+                        // a pooled worker would keep the screenshot reachable until it reads the next one
+                        RasterKernel.release();
+                    }
+                });
+
+        try (PrintWriter out = new PrintWriter(outputFile, StandardCharsets.UTF_8)) {
+            out.println("# written by KeyPixelExtractor from " + inputFolder.getName());
+            out.println(KeyPixelCardRecognizer.SUIT_TREE_NAME);
+            final int suitDepth = writeNode(new ArrayList<>(suitSamples.entrySet()), KeyPixelCardRecognizer.SUIT_TREE_AREA, 0, out);
+            out.println(KeyPixelCardRecognizer.VALUE_TREE_NAME);
+            final int valueDepth = writeNode(new ArrayList<>(valueSamples.entrySet()), KeyPixelCardRecognizer.VALUE_TREE_AREA, 0, out);
+            System.out.println("Suit tree depth " + suitDepth + ", value tree depth " + valueDepth + ", written to " + outputFile);
+        }
+    }
 
-            Set<Integer> mandatoryPixels = null;
-            Set<Integer> probablePixels = null;
+    private static void addSamples(File file, Map<Sample, Long> suitSamples, Map<Sample, Long> valueSamples) {
+        final TableImage table;
+        try {
+            table = STRIP_DECODER.decode(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (!KeyPixelCardRecognizer.probesUnscaled(table.layout())) {
+            System.err.println("Skipping " + file.getName() + ": its areas are not of the tree size");
+            return;
+        }
 
-            for (BufferedImage image : images) {
-                final int[] areaRgbs = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        String cards = file.getName().substring(0, file.getName().length() - ".png".length());
+        int cardNum = 0;
+        while (!cards.isEmpty()) {
+            final String value = cards.startsWith("10") ? "10" : cards.substring(0, 1);
+            cards = cards.substring(value.length());
 
-                final HashSet<Integer> currentCardPixels = new HashSet<>();
-                for (int i = 0; i < areaRgbs.length; i++) {
-                    if (new Color(areaRgbs[i]).getBlue() < BLUE_THRESHOLD) {
-                        currentCardPixels.add(i);
-                    }
-                }
-
-                if (mandatoryPixels == null) {
-                    mandatoryPixels = currentCardPixels;
-                    probablePixels = currentCardPixels;
-                } else {
-                    final HashSet<Integer> intersection = new HashSet<>();
-                    for (Integer mandatoryPixel : mandatoryPixels) {
-                        if (currentCardPixels.contains(mandatoryPixel)) {
-                            intersection.add(mandatoryPixel);
-                        }
-                    }
+            final String suit = cards.substring(0, 1);
+            cards = cards.substring(1);
 
-                    mandatoryPixels = intersection;
-                    probablePixels.addAll(currentCardPixels);
-                }
-            }
+            final int cardOffset = table.layout().cardOffsetX(cardNum);
+            suitSamples.merge(toSample(suit, table, table.layout().suitArea(), cardOffset), 1L, Long::sum);
+            valueSamples.merge(toSample(value, table, table.layout().valueArea(), cardOffset), 1L, Long::sum);
 
-            groupToPixels.put(group, new PixelsSet(mandatoryPixels, probablePixels));
+            cardNum++;
         }
-        return groupToPixels;
     }
 
-    private static <T> void findAndPrintKeyPixels(HashMap<T, PixelsSet> groups, boolean tryConsequentFirst, int scanSize) {
-        final HashMap<T, Collection<Integer>> groupToUniquePixels = new HashMap<>();
-        groups.forEach(((group, pixels) -> {
-            final SortedSet<Integer> uniquePixels = new TreeSet<>(pixels.mandatoryPixels);
-
-            final HashMap<T, PixelsSet> otherGroups = new HashMap<>(groups);
-            otherGroups.remove(group);
-
-            otherGroups.values().forEach(otherGroup -> uniquePixels.removeAll(otherGroup.probablePixels));
+    private static Sample toSample(String group, TableImage table, Rectangle area, int cardOffset) {
+        final int[] argb = RasterKernel.of(table.image()).readArea(table.origin().x + cardOffset + area.x, table.origin().y + area.y, area.width, area.height);
+        final long[] dark = new long[(argb.length + 63) >>> 6];
+        final long[] uncertain = new long[dark.length];
+        for (int i = 0; i < argb.length; i++) {
+            final int blue = argb[i] & 0xFF;
+            if (blue < BLUE_THRESHOLD) {
+                dark[i >>> 6] |= 1L << i;
+            }
+            if (Math.abs(blue - BLUE_THRESHOLD) < UNCERTAIN_MARGIN) {
+                uncertain[i >>> 6] |= 1L << i;
+            }
+        }
+        return new Sample(group, dark, uncertain);
+    }
 
-            final Collection<Integer> pixelsList = tryConsequentFirst ? getConsequentPixels(uniquePixels) : uniquePixels;
-            groupToUniquePixels.put(group, pixelsList);
-        }));
+    /**
+     * Writes a decision tree separating the groups of the samples in preorder, see {@link KeyPixelTree}, and returns
+     * its depth. Every node probes the pixel with the largest information gain over the remaining samples, preferring
+     * pixels that keep each group on one side and, among equally good pixels, the one fewest samples are uncertain
+     * about.
+     */
+    private static int writeNode(List<Map.Entry<Sample, Long>> samples, Dimension area, int depth, PrintWriter out) {
+        final String indent = "  ".repeat(depth);
+        final List<String> groups = samples.stream().map(sample -> sample.getKey().group()).distinct().sorted().toList();
+        if (groups.size() == 1) {
+            out.println(indent + "= " + groups.get(0));
+            return depth;
+        }
 
-        final Map.Entry<T, Collection<Integer>> largestUniquePixelsGroup = groupToUniquePixels.entrySet().stream()
-                .max(Comparator.comparing(e -> e.getValue().size()))
-                .orElseThrow();
+        final int[] sampleGroups = new int[samples.size()];
+        final long[] counts = new long[samples.size()];
+        final long[] groupCounts = new long[groups.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            sampleGroups[i] = groups.indexOf(samples.get(i).getKey().group());
+            counts[i] = samples.get(i).getValue();
+            groupCounts[sampleGroups[i]] += counts[i];
+        }
+        final double entropy = entropy(groupCounts);
 
+        final Split[] splits = IntStream.range(0, area.width * area.height)
+                .parallel()
+                .mapToObj(pixel -> evaluateSplit(pixel, samples, sampleGroups, counts, groups.size(), entropy))
+                .toArray(Split[]::new);
 
-        if (largestUniquePixelsGroup.getValue().isEmpty()) {
-            if (!tryConsequentFirst) {
-                final String groupsDescription = groups.keySet().stream().map(Object::toString).collect(Collectors.joining(", "));
-                throw new RuntimeException("No unique pixels for any group in " + groupsDescription);
+        Split best = null;
+        for (Split split : splits) {
+            if (split != null && split.isBetterThan(best)) {
+                best = split;
             }
+        }
+        if (best == null) {
+            throw new RuntimeException("No pixel tells apart samples of " + String.join(", ", groups));
+        }
 
-            findAndPrintKeyPixels(groups, false, scanSize);
-        } else {
-            final int firstUniquePixel = largestUniquePixelsGroup.getValue().iterator().next();
-            System.out.println(largestUniquePixelsGroup.getKey() + ", (" + firstUniquePixel % scanSize + ", " + firstUniquePixel / scanSize + ")");
-            groups.remove(largestUniquePixelsGroup.getKey());
+        final int pixel = best.pixel();
+        out.println(indent + pixel % area.width + " " + pixel / area.width);
+        final int darkDepth = writeNode(samples.stream().filter(sample -> isSet(sample.getKey().dark(), pixel)).toList(), area, depth + 1, out);
+        final int lightDepth = writeNode(samples.stream().filter(sample -> !isSet(sample.getKey().dark(), pixel)).toList(), area, depth + 1, out);
+        return Math.max(darkDepth, lightDepth);
+    }
 
-            if (!groups.isEmpty()) {
-                findAndPrintKeyPixels(groups, true, scanSize);
+    private static Split evaluateSplit(int pixel, List<Map.Entry<Sample, Long>> samples, int[] sampleGroups, long[] counts, int groups, double entropy) {
+        final long[] darkCounts = new long[groups];
+        final long[] lightCounts = new long[groups];
+        long dark = 0;
+        long light = 0;
+        long uncertain = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            final Sample sample = samples.get(i).getKey();
+            if (isSet(sample.dark(), pixel)) {
+                darkCounts[sampleGroups[i]] += counts[i];
+                dark += counts[i];
+            } else {
+                lightCounts[sampleGroups[i]] += counts[i];
+                light += counts[i];
             }
+            if (isSet(sample.uncertain(), pixel)) {
+                uncertain += counts[i];
+            }
+        }
+        if (dark == 0 || light == 0) {
+            return null;
         }
+
+        boolean pure = true;
+        for (int group = 0; group < groups; group++) {
+            pure &= darkCounts[group] == 0 || lightCounts[group] == 0;
+        }
+        final double gain = entropy
+                - entropy(darkCounts) * dark / (dark + light)
+                - entropy(lightCounts) * light / (dark + light);
+        return new Split(pixel, pure, gain, uncertain);
     }
 
-    private static List<Integer> getConsequentPixels(SortedSet<Integer> suitUniquePixels) {
-        final List<Integer> consequentPixels = new ArrayList<>(suitUniquePixels.size());
-        int prev = Integer.MIN_VALUE;
-
-        boolean prevWritten = false;
-        for (Integer value : suitUniquePixels) {
-            if (value == prev + 1) {
-                if (!prevWritten) {
-                    consequentPixels.add(prev);
-                }
-                consequentPixels.add(value);
-                prevWritten = true;
-            } else {
-                prevWritten = false;
+    private static double entropy(long[] counts) {
+        final long total = Arrays.stream(counts).sum();
+        double entropy = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                final double p = (double) count / total;
+                entropy -= p * Math.log(p) / Math.log(2);
             }
-            prev = value;
         }
-        return consequentPixels;
+        return entropy;
+    }
+
+    private static boolean isSet(long[] mask, int index) {
+        return (mask[index >>> 6] & 1L << index) != 0;
     }
 }
@@ -0,0 +1,124 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary decision tree over key pixels, stored flat: node {@code 0} is the root, a node either probes a pixel
+ * and continues with its dark or light child, or is a leaf holding the key.
+ * <p>
+ * The text form lists nodes in preorder, one per line: {@code x y} for a probe followed by its dark and then
+ * its light subtree, {@code = key} for a leaf.
+ */
+class KeyPixelTree {
+    private final List<Point> probes = new ArrayList<>();
+    private final List<String> keys = new ArrayList<>();
+    private final List<Integer> darkChildren = new ArrayList<>();
+    private final List<Integer> lightChildren = new ArrayList<>();
+
+    private int[] probeXs;
+    private int[] probeYs;
+    private int[] darkChild;
+    private int[] lightChild;
+
+    boolean isLeaf(int node) {
+        return probeXs[node] < 0;
+    }
+
+    int probeX(int node) {
+        return probeXs[node];
+    }
+
+    int probeY(int node) {
+        return probeYs[node];
+    }
+
+    int next(int node, boolean dark) {
+        return dark ? darkChild[node] : lightChild[node];
+    }
+
+    String key(int node) {
+        return keys.get(node);
+    }
+
+    /**
+     * Reads the trees named in {@code names}, each preceded by a line with its name, in that order.
+     */
+    static KeyPixelTree[] read(Reader reader, String... names) throws IOException {
+        final BufferedReader lines = new BufferedReader(reader);
+        final KeyPixelTree[] trees = new KeyPixelTree[names.length];
+        for (int i = 0; i < names.length; i++) {
+            final String name = nextLine(lines);
+            if (!name.equals(names[i])) {
+                throw new IOException("Expected tree " + names[i] + ", found " + name);
+            }
+            trees[i] = new KeyPixelTree();
+            trees[i].readNode(lines);
+            trees[i].flatten();
+        }
+        return trees;
+    }
+
+    static KeyPixelTree[] readFromClasspath(String filename, String... names) {
+        final InputStream resource = Thread.currentThread().getContextClassLoader().getResourceAsStream(filename);
+        if (resource == null) {
+            throw new RuntimeException("No " + filename + " on the classpath");
+        }
+        try (Reader reader = new InputStreamReader(resource, StandardCharsets.UTF_8)) {
+            return read(reader, names);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private int readNode(BufferedReader lines) throws IOException {
+        final String line = nextLine(lines);
+        final int node = probes.size();
+        darkChildren.add(-1);
+        lightChildren.add(-1);
+        if (line.startsWith("=")) {
+            probes.add(null);
+            keys.add(line.substring(1).trim());
+            return node;
+        }
+
+        final String[] coordinates = line.split(" ");
+        if (coordinates.length != 2) {
+            throw new IOException("Malformed tree node: " + line);
+        }
+        probes.add(new Point(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1])));
+        keys.add(null);
+        darkChildren.set(node, readNode(lines));
+        lightChildren.set(node, readNode(lines));
+        return node;
+    }
+
+    private static String nextLine(BufferedReader lines) throws IOException {
+        String line;
+        do {
+            line = lines.readLine();
+            if (line == null) {
+                throw new EOFException("Key pixel tree ends unexpectedly");
+            }
+            line = line.trim();
+        } while (line.isEmpty() || line.startsWith("#"));
+        return line;
+    }
+
+    private void flatten() {
+        probeXs = new int[probes.size()];
+        probeYs = new int[probes.size()];
+        darkChild = new int[probes.size()];
+        lightChild = new int[probes.size()];
+        for (int node = 0; node < probes.size(); node++) {
+            final Point probe = probes.get(node);
+            probeXs[node] = probe == null ? -1 : probe.x;
+            probeYs[node] = probe == null ? -1 : probe.y;
+            darkChild[node] = darkChildren.get(node);
+            lightChild[node] = lightChildren.get(node);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.gdomo;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Drops screenshots that cannot be decoded into a watched folder, each followed by a valid one, and expects the watcher
+ * to skip the broken ones and go on recognizing.
+ */
+public class FolderWatcherTest {
+    private static final byte[] PNG_TRAILER = {0, 0, 0, 0, 'I', 'E', 'N', 'D', (byte) 0xAE, 0x42, 0x60, (byte) 0x82};
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final File screenshot = Arrays.stream(Objects.requireNonNull(new File(args[0]).listFiles((dir, name) -> name.endsWith(".png"))))
+                .sorted()
+                .findFirst()
+                .orElseThrow();
+        final byte[] png = Files.readAllBytes(screenshot.toPath());
+        final String expectedCards = screenshot.getName().substring(0, screenshot.getName().length() - ".png".length());
+
+        final byte[] garbage = new byte[4096];
+        Arrays.fill(garbage, (byte) 0x5A);
+        System.arraycopy(PNG_TRAILER, 0, garbage, garbage.length - PNG_TRAILER.length, PNG_TRAILER.length);
+        final byte[] truncated = Arrays.copyOf(png, png.length / 2 + PNG_TRAILER.length);
+        System.arraycopy(PNG_TRAILER, 0, truncated, png.length / 2, PNG_TRAILER.length);
+
+        // decodes, but the recognizer refuses its layout
+        final BufferedImage image = ImageIO.read(screenshot);
+        final BufferedImage scaledImage = new BufferedImage(image.getWidth() * 4 / 5, image.getHeight() * 4 / 5, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = scaledImage.createGraphics();
+        graphics.drawImage(image, 0, 0, scaledImage.getWidth(), scaledImage.getHeight(), null);
+        graphics.dispose();
+        final ByteArrayOutputStream scaled = new ByteArrayOutputStream();
+        ImageIO.write(scaledImage, "PNG", scaled);
+
+        final Path watched = Files.createTempDirectory("brainshells-watch-test");
+        final BlockingQueue<String> recognized = new LinkedBlockingQueue<>();
+        final Thread watcher = new Thread(() -> {
+            try {
+                FolderWatcher.watch(watched.toString(), KeyPixelCardRecognizer.ENGINE, KeyPixelCardRecognizer.STRIP_DECODER,
+                        (file, cards) -> recognized.add(file.getName() + " - " + Card.describe(cards)));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } catch (InterruptedException e) {
+                // done
+            }
+        }, "folder-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+
+        try {
+            // the watcher registers some time after it starts
+            String started = null;
+            for (int attempt = 0; attempt < 100 && started == null; attempt++) {
+                Files.write(watched.resolve("start-" + attempt + ".png"), png);
+                started = recognized.poll(100, TimeUnit.MILLISECONDS);
+            }
+            if (started == null) {
+                throw new RuntimeException("Nothing recognized in " + watched);
+            }
+            Thread.sleep(200);
+            recognized.clear();
+
+            for (byte[] broken : List.of(garbage, truncated, scaled.toByteArray())) {
+                Files.write(watched.resolve("broken.png"), broken);
+                Files.write(watched.resolve("valid.png"), png);
+                final String result = recognized.poll(10, TimeUnit.SECONDS);
+                System.out.println(result);
+                if (!("valid.png - " + expectedCards).equals(result)) {
+                    throw new RuntimeException("Expected: valid.png - " + expectedCards + ", actual: " + result);
+                }
+                Files.delete(watched.resolve("broken.png"));
+                Files.delete(watched.resolve("valid.png"));
+            }
+        } finally {
+            watcher.interrupt();
+            try (Stream<Path> files = Files.list(watched)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(watched);
+        }
+    }
+}
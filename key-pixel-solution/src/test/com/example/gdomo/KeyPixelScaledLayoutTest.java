@@ -0,0 +1,39 @@
+package com.example.gdomo;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Scales screenshots down, so that their layout has areas of another size than the trees probe, and expects the
+ * recognizer to refuse them rather than return what the scaled probes happen to read.
+ */
+public class KeyPixelScaledLayoutTest {
+    public static void main(String[] args) throws IOException {
+        final File[] files = Objects.requireNonNull(new File(args[0]).listFiles((dir, name) -> name.endsWith(".png")));
+        Arrays.sort(files);
+        for (File file : Arrays.copyOf(files, Math.min(files.length, 10))) {
+            final BufferedImage screenshot = ImageIO.read(file);
+            final int width = screenshot.getWidth() * 4 / 5;
+            final int height = screenshot.getHeight() * 4 / 5;
+            final BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            final Graphics2D graphics = scaled.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(screenshot, 0, 0, width, height, null);
+            graphics.dispose();
+
+            final String cards;
+            try {
+                cards = KeyPixelCardRecognizer.ENGINE.recognize(scaled);
+            } catch (IllegalArgumentException e) {
+                System.out.println(file.getName() + " scaled to " + width + "x" + height + " - refused: " + e.getMessage());
+                continue;
+            }
+            throw new RuntimeException("Expected " + file.getName() + " scaled to " + width + "x" + height + " to be refused, recognized: " + cards);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.gdomo;
+
+import java.util.Map;
+
+/**
+ * Nearest neighbour search over short feature vectors of glyphs instead of their whole bitmaps. The features are
+ * measured relative to the bounding box of the dark pixels, so a glyph needs no scaling to the template size first and
+ * small scale differences between rendered and real glyphs barely move them:
+ * <ul>
+ *     <li>the dark pixel density of every zone of a {@value #ZONE_COLUMNS}x{@value #ZONE_ROWS} grid over the box,</li>
+ *     <li>the density of {@value #BANDS} horizontal and {@value #BANDS} vertical bands of the box,</li>
+ *     <li>the aspect of the box and the centroid of the dark pixels in it.</li>
+ * </ul>
+ * Every feature is an int from 0 to 255 and the distance is the sum of squared differences. A glyph is read twice: its
+ * dark pixels for the box, then the box for the counts.
+ */
+public class FeatureIndex {
+    static final int ZONE_COLUMNS = 4;
+    static final int ZONE_ROWS = 5;
+    static final int BANDS = 8;
+    static final int FEATURES = ZONE_COLUMNS * ZONE_ROWS + 2 * BANDS + 3;
+
+    private static final int ROW_BANDS = ZONE_COLUMNS * ZONE_ROWS;
+    private static final int COLUMN_BANDS = ROW_BANDS + BANDS;
+    private static final int SHAPE = COLUMN_BANDS + BANDS;
+
+    // in the order of the template map, equally close templates match in it
+    private final String[] keys;
+    private final int[][] templates;
+    private final int width;
+    private final int height;
+
+    /**
+     * @param templates glyphs of {@code width x height}
+     */
+    public FeatureIndex(Map<String, long[]> templates, int width, int height) {
+        if (templates.isEmpty()) {
+            throw new IllegalArgumentException("No templates to match with");
+        }
+        this.width = width;
+        this.height = height;
+        this.keys = templates.keySet().toArray(new String[0]);
+        this.templates = templates.values().stream().map(glyph -> features(glyph, width, height, new int[FEATURES])).toArray(int[][]::new);
+    }
+
+    /**
+     * @param glyph binarized area of the size of the templates
+     */
+    public GlyphMatch closest(long[] glyph) {
+        final int[] features = features(glyph, width, height, RasterKernel.forCurrentThread().ints(FEATURES));
+        int closest = -1;
+        int closestDistance = Integer.MAX_VALUE;
+        int secondDistance = Integer.MAX_VALUE;
+        for (int index = 0; index < templates.length; index++) {
+            final int[] template = templates[index];
+            int distance = 0;
+            for (int i = 0; i < FEATURES && distance < secondDistance; i++) {
+                final int difference = features[i] - template[i];
+                distance += difference * difference;
+            }
+            if (distance < closestDistance) {
+                closest = index;
+                secondDistance = closestDistance;
+                closestDistance = distance;
+            } else if (distance < secondDistance) {
+                secondDistance = distance;
+            }
+        }
+        return new GlyphMatch(keys[closest], closestDistance, secondDistance);
+    }
+
+    /**
+     * @return {@code features} filled, all zero for a glyph without dark pixels
+     */
+    static int[] features(long[] glyph, int width, int height, int[] features) {
+        int left = width;
+        int right = -1;
+        int top = height;
+        int bottom = -1;
+        for (int word = 0; word < glyph.length; word++) {
+            for (long dark = glyph[word]; dark != 0; dark &= dark - 1) {
+                final int i = word * Long.SIZE + Long.numberOfTrailingZeros(dark);
+                final int x = i % width;
+                final int y = i / width;
+                left = Math.min(x, left);
+                right = Math.max(x, right);
+                top = Math.min(y, top);
+                bottom = Math.max(y, bottom);
+            }
+        }
+        for (int i = 0; i < FEATURES; i++) {
+            features[i] = 0;
+        }
+        if (right < 0) {
+            return features;
+        }
+
+        // the zone and the bands of every column and row of the box, so that pixels are counted without dividing
+        final int boxWidth = right - left + 1;
+        final int boxHeight = bottom - top + 1;
+        final int[] cellsOf = RasterKernel.forCurrentThread().ints(2 * (width + height));
+        final int columnBands = width;
+        final int rowZones = 2 * width;
+        final int rowBands = 2 * width + height;
+        for (int x = left; x <= right; x++) {
+            cellsOf[x] = (x - left) * ZONE_COLUMNS / boxWidth;
+            cellsOf[columnBands + x] = COLUMN_BANDS + (x - left) * BANDS / boxWidth;
+        }
+        for (int y = top; y <= bottom; y++) {
+            cellsOf[rowZones + y] = (y - top) * ZONE_ROWS / boxHeight * ZONE_COLUMNS;
+            cellsOf[rowBands + y] = ROW_BANDS + (y - top) * BANDS / boxHeight;
+        }
+
+        int dark = 0;
+        long sumX = 0;
+        long sumY = 0;
+        for (int y = top; y <= bottom; y++) {
+            for (int x = left, i = y * width + left; x <= right; x++, i++) {
+                if ((glyph[i >>> 6] & 1L << i) != 0) {
+                    features[cellsOf[rowZones + y] + cellsOf[x]]++;
+                    features[cellsOf[rowBands + y]]++;
+                    features[cellsOf[columnBands + x]]++;
+                    dark++;
+                    sumX += x - left;
+                    sumY += y - top;
+                }
+            }
+        }
+
+        // counts to densities, cells of the grids differ in size by a pixel
+        for (int zoneRow = 0; zoneRow < ZONE_ROWS; zoneRow++) {
+            final int zoneHeight = cells(zoneRow, ZONE_ROWS, boxHeight);
+            for (int zoneColumn = 0; zoneColumn < ZONE_COLUMNS; zoneColumn++) {
+                final int zone = zoneRow * ZONE_COLUMNS + zoneColumn;
+                features[zone] = density(features[zone], zoneHeight * cells(zoneColumn, ZONE_COLUMNS, boxWidth));
+            }
+        }
+        for (int band = 0; band < BANDS; band++) {
+            features[ROW_BANDS + band] = density(features[ROW_BANDS + band], cells(band, BANDS, boxHeight) * boxWidth);
+            features[COLUMN_BANDS + band] = density(features[COLUMN_BANDS + band], cells(band, BANDS, boxWidth) * boxHeight);
+        }
+        features[SHAPE] = 255 * boxWidth / (boxWidth + boxHeight);
+        features[SHAPE + 1] = (int) (255 * sumX / ((long) dark * boxWidth));
+        features[SHAPE + 2] = (int) (255 * sumY / ((long) dark * boxHeight));
+        return features;
+    }
+
+    /**
+     * @return how many of {@code length} pixels fall into cell {@code cell} of {@code cells}
+     */
+    private static int cells(int cell, int cells, int length) {
+        return ((cell + 1) * length + cells - 1) / cells - (cell * length + cells - 1) / cells;
+    }
+
+    private static int density(int dark, int pixels) {
+        return pixels == 0 ? 0 : 255 * dark / pixels;
+    }
+}
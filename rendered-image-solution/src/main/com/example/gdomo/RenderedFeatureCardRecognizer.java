@@ -0,0 +1,34 @@
+package com.example.gdomo;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.BiConsumer;
+
+/**
+ * Matches the value and suit areas with the templates of {@link RenderedImageCardRecognizer} by their features, see
+ * {@link FeatureIndex}, instead of scaling every binarized area to its bounding box and comparing whole bitmaps.
+ */
+public class RenderedFeatureCardRecognizer {
+    private static final String NAME = "rendered-feature";
+
+    static final CardStripDecoder STRIP_DECODER = RenderedImageCardRecognizer.STRIP_DECODER;
+
+    static final Dimension VALUE_SIZE = RenderedImageCardRecognizer.VALUE_SIZE;
+    static final Dimension SUIT_SIZE = RenderedImageCardRecognizer.SUIT_SIZE;
+
+    static final FeatureIndex VALUE_INDEX = new FeatureIndex(RenderedImageCardRecognizer.VALUES_TO_SAMPLE, VALUE_SIZE.width, VALUE_SIZE.height);
+    static final FeatureIndex SUIT_INDEX = new FeatureIndex(RenderedImageCardRecognizer.SUITS_TO_SAMPLE, SUIT_SIZE.width, SUIT_SIZE.height);
+
+    static final TemplateCardRecognizer CARDS = new TemplateCardRecognizer(NAME, (argb, size, glyph) -> BinaryGlyphs.binarize(argb, glyph),
+            VALUE_SIZE, VALUE_INDEX::closest, SUIT_SIZE, SUIT_INDEX::closest);
+    public static final CardEngine ENGINE = new CardEngine(NAME, STRIP_DECODER, CARDS);
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ENGINE.run(args);
+    }
+
+    public static void recognizeCards(String folder, BiConsumer<File, String> onRecognized) throws IOException {
+        ENGINE.recognizeCards(folder, onRecognized);
+    }
+}
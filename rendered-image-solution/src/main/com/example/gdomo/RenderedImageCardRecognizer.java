@@ -1,11 +1,9 @@
 package com.example.gdomo;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.font.TextAttribute;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
 import java.text.AttributedString;
@@ -17,49 +15,65 @@ import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class RenderedImageCardRecognizer {
-    private static final int[] CARD_OFFSETS_X = new int[]{0, 72, 143, 215, 287};
+    private static final String NAME = "rendered-image";
 
-    private static final Point BACKGROUND_PROBE = new Point(153, 650);
-    private static final int BACKGROUND_THRESHOLD = 120;
+    // templates have the size of the default layout areas, areas of other layouts are scaled to it
+    static final Dimension VALUE_SIZE = TableLayout.DEFAULT.valueArea().getSize();
+    static final Dimension SUIT_SIZE = TableLayout.DEFAULT.suitArea().getSize();
 
-    private static final Rectangle VALUE_AREA = new Rectangle(148, 590, 30, 25);
-    private static final Rectangle SUIT_AREA = new Rectangle(170, 633, 30, 35);
+    static final CardStripDecoder STRIP_DECODER = new CardStripDecoder();
 
-    public static void main(String[] args) throws IOException {
-        recognizeCards(args[0], ((file, cards) -> System.out.println(file.getName() + " - " + cards)));
+    static final String TEMPLATE_PACK = "rendered-templates.pack";
+    static final String VALUE_TEMPLATES = "values";
+    static final String SUIT_TEMPLATES = "suits";
+
+    private static final TemplatePack TEMPLATES = loadTemplates();
+    static final Map<String, long[]> VALUES_TO_SAMPLE = TEMPLATES.glyphs(VALUE_TEMPLATES, VALUE_SIZE.width, VALUE_SIZE.height);
+    static final Map<String, long[]> SUITS_TO_SAMPLE = TEMPLATES.glyphs(SUIT_TEMPLATES, SUIT_SIZE.width, SUIT_SIZE.height);
+    static final GlyphMatcher VALUE_MATCHER = new GlyphMatcher(VALUES_TO_SAMPLE);
+    static final GlyphMatcher SUIT_MATCHER = new GlyphMatcher(SUITS_TO_SAMPLE);
+
+    static final TemplateCardRecognizer CARDS = new TemplateCardRecognizer(NAME, (argb, size, glyph) -> toNormalized(argb, size.width, size.height, glyph),
+            VALUE_SIZE, VALUE_MATCHER::closest, SUIT_SIZE, SUIT_MATCHER::closest);
+    public static final CardEngine ENGINE = new CardEngine(NAME, STRIP_DECODER, CARDS);
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ENGINE.run(args);
     }
 
     public static void recognizeCards(String folder, BiConsumer<File, String> onRecognized) throws IOException {
-        final Map<String, BufferedImage> valuesToSample = Stream.concat(
+        ENGINE.recognizeCards(folder, onRecognized);
+    }
+
+    /**
+     * A pack made by {@link RenderedTemplateRenderer} on the machine the screenshots come from spares the font
+     * subsystem at startup, without one the templates are rendered with whatever fonts this machine has.
+     */
+    private static TemplatePack loadTemplates() {
+        if (Thread.currentThread().getContextClassLoader().getResource(TEMPLATE_PACK) != null) {
+            return TemplatePack.readFromClasspath(TEMPLATE_PACK);
+        }
+        return renderTemplates();
+    }
+
+    static TemplatePack renderTemplates() {
+        final Map<String, long[]> valueGlyphs = Stream.concat(
                         IntStream.rangeClosed(2, 10).mapToObj(String::valueOf),
                         Stream.of("A", "J", "Q", "K")
                 )
-                .collect(Collectors.toMap(Function.identity(), s -> renderNormalized(s, VALUE_AREA.width, VALUE_AREA.height)));
+                .collect(Collectors.toMap(Function.identity(), s -> renderNormalized(s, VALUE_SIZE.width, VALUE_SIZE.height)));
 
-        final Map<String, BufferedImage> suitsToSample = Map.of("c", "♣", "s", "♠", "d", "♦", "h", "♥")
+        final Map<String, long[]> suitGlyphs = Map.of("c", "♣", "s", "♠", "d", "♦", "h", "♥")
                 .entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> renderNormalized(e.getValue(), SUIT_AREA.width, SUIT_AREA.height)));
-
-        final File[] files = Optional.ofNullable(new File(folder).listFiles()).orElse(new File[0]);
-        for (File file : files) {
-            final BufferedImage image = ImageIO.read(file);
-            final StringBuilder descriptionBuilder = new StringBuilder();
-            for (int cardOffset : CARD_OFFSETS_X) {
-                if (new Color(image.getRGB(cardOffset + BACKGROUND_PROBE.x, BACKGROUND_PROBE.y)).getBlue() < BACKGROUND_THRESHOLD) {
-                    break;
-                }
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> renderNormalized(e.getValue(), SUIT_SIZE.width, SUIT_SIZE.height)));
 
-                final BufferedImage valueSubimage = toNormalized(image.getSubimage(VALUE_AREA.x + cardOffset, VALUE_AREA.y, VALUE_AREA.width, VALUE_AREA.height));
-                final BufferedImage suitSubimage = toNormalized(image.getSubimage(SUIT_AREA.x + cardOffset, SUIT_AREA.y, SUIT_AREA.width, SUIT_AREA.height));
-
-                descriptionBuilder.append(getKeyForClosest(valueSubimage, valuesToSample));
-                descriptionBuilder.append(getKeyForClosest(suitSubimage, suitsToSample));
-            }
-            onRecognized.accept(file, descriptionBuilder.toString());
-        }
+        final Map<String, TemplatePack.TemplateSet> sets = new LinkedHashMap<>();
+        sets.put(VALUE_TEMPLATES, new TemplatePack.TemplateSet(VALUE_SIZE.width, VALUE_SIZE.height, new LinkedHashMap<>(valueGlyphs)));
+        sets.put(SUIT_TEMPLATES, new TemplatePack.TemplateSet(SUIT_SIZE.width, SUIT_SIZE.height, new LinkedHashMap<>(suitGlyphs)));
+        return new TemplatePack(sets);
     }
 
-    private static BufferedImage renderNormalized(String text, int width, int height) {
+    private static long[] renderNormalized(String text, int width, int height) {
         final BufferedImage renderedSample = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
         final Graphics graphics = renderedSample.getGraphics();
         graphics.setColor(Color.WHITE);
@@ -77,62 +91,66 @@ public class RenderedImageCardRecognizer {
         return toNormalized(renderedSample);
     }
 
-    private static BufferedImage toNormalized(BufferedImage image) {
-        final int[] argb = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
-        final int max = Arrays.stream(argb).map(RenderedImageCardRecognizer::argbToGray).max().orElseThrow();
-        final int min = Arrays.stream(argb).map(RenderedImageCardRecognizer::argbToGray).min().orElseThrow();
-
-        final int avg = (max + min) / 2;
-
-        double left = image.getWidth() - 1;
-        double right = 0;
-        double top = image.getHeight() - 1;
-        double bottom = 0;
-        for (int x = 0; x < image.getWidth(); x++) {
-            for (int y = 0; y < image.getHeight(); y++) {
-                // to binary colored
-                // and store content boundaries
-                final int rgb = image.getRGB(x, y);
-                if (argbToGray(rgb) < avg) {
-                    image.setRGB(x, y, 0xFF000000);
-
-                    left = Math.min(x, left);
-                    right = Math.max(x, right);
-                    top = Math.min(y, top);
-                    bottom = Math.max(y, bottom);
-                } else {
-                    image.setRGB(x, y, 0xFFFFFFFF);
-                }
-            }
-        }
-
-        final AffineTransform transform = new AffineTransform();
-        transform.scale(image.getWidth() / (1 + right - left), image.getHeight() / (1 + bottom - top));
-        transform.translate(-left, -top);
-        final BufferedImage scaledImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        new AffineTransformOp(transform, AffineTransformOp.TYPE_NEAREST_NEIGHBOR).filter(image, scaledImage);
-
-        return scaledImage;
+    /**
+     * @return scratch glyph of this thread, see {@link RasterKernel#glyph(int)}
+     */
+    static long[] toNormalized(BufferedImage image, Point origin, Rectangle area, Dimension size, int cardOffset) {
+        final int[] argb = TemplateCardRecognizer.getAreaPixels(image, origin, area, size, cardOffset);
+        return toNormalized(argb, size.width, size.height, RasterKernel.forCurrentThread().glyph(argb.length));
     }
 
-    private static int argbToGray(int argb) {
-        return (argb & 0x00FF0000 + argb & 0x0000FF00 + argb & 0x0000FF) / 3;
+    static long[] toNormalized(BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        return toNormalized(image.getRGB(0, 0, width, height, null, 0, width), width, height, BinaryGlyphs.allocate(width * height));
     }
 
-    private static String getKeyForClosest(BufferedImage grayscaleTarget, Map<String, BufferedImage> grayscaleCandidates) {
-        return grayscaleCandidates.entrySet().stream()
-                .min(Comparator.comparing(e -> getDistance(grayscaleTarget, e.getValue())))
-                .orElseThrow().getKey();
-    }
-
-    private static long getDistance(BufferedImage aGrayscale, BufferedImage bGrayscale) {
-        long distance = 0;
-        for (int x = 0; x < aGrayscale.getWidth(); x++) {
-            for (int y = 0; y < aGrayscale.getHeight(); y++) {
-                distance += Math.abs((aGrayscale.getRGB(x, y) & 0xFF) - (bGrayscale.getRGB(x, y) & 0xFF));
+    /**
+     * Binarizes {@code argb} and scales its content to the whole glyph.
+     *
+     * @param glyph cleared glyph to pack into
+     */
+    private static long[] toNormalized(int[] argb, int width, int height, long[] glyph) {
+        BinaryGlyphs.binarize(argb, glyph);
+
+        final RasterKernel kernel = RasterKernel.forCurrentThread();
+        final BufferedImage binaryImage = kernel.scratchImage(width, height, 0);
+        final int[] binary = ((DataBufferInt) binaryImage.getRaster().getDataBuffer()).getData();
+        Arrays.fill(binary, 0, argb.length, 0xFFFFFFFF);
+
+        // to binary colored
+        // and store content boundaries
+        int left = width;
+        int right = -1;
+        int top = height;
+        int bottom = -1;
+        for (int word = 0; word < glyph.length; word++) {
+            for (long dark = glyph[word]; dark != 0; dark &= dark - 1) {
+                final int i = word * Long.SIZE + Long.numberOfTrailingZeros(dark);
+                binary[i] = 0xFF000000;
+
+                left = Math.min(i % width, left);
+                right = Math.max(i % width, right);
+                top = Math.min(i / width, top);
+                bottom = Math.max(i / width, bottom);
             }
         }
+        Arrays.fill(glyph, 0);
+        if (right < 0) {
+            return glyph;
+        }
 
-        return distance;
+        // scale the content to the whole glyph, every glyph pixel takes the content pixel under its centre
+        final int contentWidth = right - left + 1;
+        final int contentHeight = bottom - top + 1;
+        for (int y = 0, i = 0; y < height; y++) {
+            final int row = (top + (2 * y + 1) * contentHeight / (2 * height)) * width + left;
+            for (int x = 0; x < width; x++, i++) {
+                if (binary[row + (2 * x + 1) * contentWidth / (2 * width)] != 0xFFFFFFFF) {
+                    BinaryGlyphs.setDark(glyph, i);
+                }
+            }
+        }
+        return glyph;
     }
 }
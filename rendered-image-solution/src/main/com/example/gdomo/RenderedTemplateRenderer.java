@@ -0,0 +1,14 @@
+package com.example.gdomo;
+
+import java.io.File;
+import java.io.IOException;
+
+public class RenderedTemplateRenderer {
+    public static void main(String[] args) throws IOException {
+        final File outputFile = new File(args.length > 0 ? args[0] : "src/resources/" + RenderedImageCardRecognizer.TEMPLATE_PACK);
+        //noinspection ResultOfMethodCallIgnored
+        outputFile.getParentFile().mkdirs();
+        RenderedImageCardRecognizer.renderTemplates().write(outputFile);
+        System.out.println("Templates written to " + outputFile);
+    }
+}
@@ -1,106 +1,53 @@
 package com.example.gdomo;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.*;
+import java.util.Map;
 import java.util.function.BiConsumer;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class SampleImageCardRecognizer {
-    private static final int[] CARD_OFFSETS_X = new int[]{0, 72, 143, 215, 287};
+    private static final String NAME = "sample-image";
 
-    private static final Point BACKGROUND_PROBE = new Point(153, 650);
-    private static final int BACKGROUND_THRESHOLD = 120;
+    // templates have the size of the default layout areas, areas of other layouts are scaled to it
+    static final Dimension VALUE_SIZE = TableLayout.DEFAULT.valueArea().getSize();
+    static final Dimension SUIT_SIZE = TableLayout.DEFAULT.suitArea().getSize();
 
-    private static final Rectangle VALUE_AREA = new Rectangle(148, 590, 30, 25);
-    private static final Rectangle SUIT_AREA = new Rectangle(170, 633, 30, 35);
+    static final CardStripDecoder STRIP_DECODER = new CardStripDecoder();
 
-    public static void main(String[] args) throws IOException {
-        recognizeCards(args[0], ((file, cards) -> System.out.println(file.getName() + " - " + cards)));
-    }
-
-    public static void recognizeCards(String folder, BiConsumer<File, String> onRecognized) throws IOException {
-        final Map<String, BufferedImage> valuesToSample = Stream.concat(
-                        Stream.iterate(2, i -> i + 1).limit(9).map(String::valueOf),
-                        Stream.of("A", "J", "Q", "K")
-                )
-                .collect(Collectors.toMap(Function.identity(), s -> readFromClasspath(s + ".png")));
-
-        final Map<String, BufferedImage> suitsToSample = Stream.of("c", "s", "d", "h")
-                .collect(Collectors.toMap(Function.identity(), s -> readFromClasspath(s + ".png")));
+    static final String TEMPLATE_PACK = "sample-templates.pack";
+    static final String VALUE_TEMPLATES = "values";
+    static final String SUIT_TEMPLATES = "suits";
 
-        final File[] files = Optional.ofNullable(new File(folder).listFiles()).orElse(new File[0]);
-        for (File file : files) {
-            final BufferedImage image = ImageIO.read(file);
-            final StringBuilder descriptionBuilder = new StringBuilder();
-            for (int cardOffset : CARD_OFFSETS_X) {
-                if (new Color(image.getRGB(cardOffset + BACKGROUND_PROBE.x, BACKGROUND_PROBE.y)).getBlue() < BACKGROUND_THRESHOLD) {
-                    break;
-                }
+    private static final TemplatePack TEMPLATES = TemplatePack.readFromClasspath(TEMPLATE_PACK);
+    static final Map<String, long[]> VALUES_TO_SAMPLE = TEMPLATES.glyphs(VALUE_TEMPLATES, VALUE_SIZE.width, VALUE_SIZE.height);
+    static final Map<String, long[]> SUITS_TO_SAMPLE = TEMPLATES.glyphs(SUIT_TEMPLATES, SUIT_SIZE.width, SUIT_SIZE.height);
+    // on the fixtures accepting a value this close takes a third of the time of comparing with all 13 templates, with
+    // the same matches (GlyphMatcherTest), while the 4 suit templates are faster to compare with in full
+    static final int VALUE_EXACT_DISTANCE = 64;
+    static final GlyphMatcher VALUE_MATCHER = new GlyphMatcher(VALUES_TO_SAMPLE, VALUE_EXACT_DISTANCE);
+    static final GlyphMatcher SUIT_MATCHER = new GlyphMatcher(SUITS_TO_SAMPLE);
 
-                final BufferedImage valueSubimage = toNormalizedGrayscale(image.getSubimage(VALUE_AREA.x + cardOffset, VALUE_AREA.y, VALUE_AREA.width, VALUE_AREA.height));
-                final BufferedImage suitSubimage = toNormalizedGrayscale(image.getSubimage(SUIT_AREA.x + cardOffset, SUIT_AREA.y, SUIT_AREA.width, SUIT_AREA.height));
+    static final TemplateCardRecognizer CARDS = new TemplateCardRecognizer(NAME, (argb, size, glyph) -> toNormalizedGrayscale(argb, glyph),
+            VALUE_SIZE, VALUE_MATCHER::closest, SUIT_SIZE, SUIT_MATCHER::closest);
+    public static final CardEngine ENGINE = new CardEngine(NAME, STRIP_DECODER, CARDS);
 
-                descriptionBuilder.append(getKeyForClosest(valueSubimage, valuesToSample));
-                descriptionBuilder.append(getKeyForClosest(suitSubimage, suitsToSample));
-            }
-            onRecognized.accept(file, descriptionBuilder.toString());
-        }
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ENGINE.run(args);
     }
 
-    private static BufferedImage readFromClasspath(String filename) {
-        final InputStream imageResource = Objects.requireNonNull(Thread.currentThread().getContextClassLoader().getResourceAsStream(filename));
-        try {
-            return ImageIO.read(imageResource);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private static BufferedImage toNormalizedGrayscale(BufferedImage image) {
-        final int[] argb = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
-        final int max = Arrays.stream(argb).map(SampleImageCardRecognizer::argbToGray).max().orElseThrow();
-        final int min = Arrays.stream(argb).map(SampleImageCardRecognizer::argbToGray).min().orElseThrow();
-
-        final int avg = (max + min) / 2;
-
-        for (int i = 0; i < argb.length; i++) {
-            final int x = i % image.getWidth();
-            final int y = i / image.getWidth();
-            if (argbToGray(argb[i]) < avg) {
-                image.setRGB(x, y, 0xFF000000);
-            } else {
-                image.setRGB(x, y, 0xFFFFFFFF);
-            }
-        }
-
-        return image;
-    }
-
-    private static int argbToGray(int argb) {
-        return (argb & 0x00FF0000 + argb & 0x0000FF00 + argb & 0x0000FF) / 3;
+    public static void recognizeCards(String folder, BiConsumer<File, String> onRecognized) throws IOException {
+        ENGINE.recognizeCards(folder, onRecognized);
     }
 
-    private static String getKeyForClosest(BufferedImage grayscaleTarget, Map<String, BufferedImage> grayscaleCandidates) {
-        return grayscaleCandidates.entrySet().stream()
-                .min(Comparator.comparing(e -> getDistance(grayscaleTarget, e.getValue())))
-                .orElseThrow().getKey();
+    static long[] toNormalizedGrayscale(int[] argb) {
+        return toNormalizedGrayscale(argb, BinaryGlyphs.allocate(argb.length));
     }
 
-    private static long getDistance(BufferedImage aGrayscale, BufferedImage bGrayscale) {
-        long distance = 0;
-        for (int x = 0; x < aGrayscale.getWidth(); x++) {
-            for (int y = 0; y < aGrayscale.getHeight(); y++) {
-                distance += Math.abs((aGrayscale.getRGB(x, y) & 0xFF) - (bGrayscale.getRGB(x, y) & 0xFF));
-            }
-        }
-
-        return distance;
+    /**
+     * @param glyph cleared glyph to binarize into
+     */
+    static long[] toNormalizedGrayscale(int[] argb, long[] glyph) {
+        return BinaryGlyphs.binarize(argb, glyph);
     }
 }
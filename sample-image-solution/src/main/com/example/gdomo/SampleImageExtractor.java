@@ -5,109 +5,126 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Builds the sample templates from screenshots named after their cards: {@code SampleImageExtractor <folder> [sums]}.
+ * Screenshots are read in parallel and their areas only added to running per-pixel sums, see {@link TemplateSums},
+ * so the memory needed does not grow with the number of screenshots. The sums are kept in
+ * {@code averageImages/sample-sums.bin} by default: run again on a folder with more screenshots, only the new ones
+ * are read and the templates are made from all of them. Screenshots are told apart by their bytes, not their names,
+ * which only give their cards.
+ */
 public class SampleImageExtractor {
-    private static final int[] CARD_OFFSETS_X = new int[]{0, 72, 143, 215, 287};
+    private static final Dimension VALUE_SIZE = SampleImageCardRecognizer.VALUE_SIZE;
+    private static final Dimension SUIT_SIZE = SampleImageCardRecognizer.SUIT_SIZE;
 
-    private static final Rectangle VALUE_AREA = new Rectangle(148, 590, 30, 25);
-    private static final Rectangle SUIT_AREA = new Rectangle(170, 633, 30, 35);
-
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         final File inputFolder = new File(args[0]);
 
-        final Map<Character, List<BufferedImage>> suitToImages = new HashMap<>();
-        final Map<String, List<BufferedImage>> valueToImages = new HashMap<>();
-        populateAreaSubimages(inputFolder, suitToImages, valueToImages);
-
-        final Map<Character, BufferedImage> suitSampleImages = suitToImages.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> normalize(getMixedGrayscaleImage(e.getValue()))));
-
-        final Map<String, BufferedImage> valueSampleImages = valueToImages.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> normalize(getMixedGrayscaleImage(e.getValue()))));
-
         File folder = new File("averageImages");
         //noinspection ResultOfMethodCallIgnored
         folder.mkdir();
 
-        suitSampleImages.forEach((suit, image) -> writePngImage(image, folder, suit + ""));
-        valueSampleImages.forEach((value, image) -> writePngImage(image, folder, value));
-    }
+        final Path sumsFile = args.length > 1 ? Path.of(args[1]) : folder.toPath().resolve("sample-sums.bin");
+        final TemplateSums sums = Files.exists(sumsFile) ? TemplateSums.read(sumsFile) : new TemplateSums();
+        final int known = sums.screenshots();
+        addScreenshots(inputFolder, sums);
+        sums.write(sumsFile);
+        System.out.println((sums.screenshots() - known) + " new screenshots, templates made from " + sums.screenshots());
 
-    private static void populateAreaSubimages(File inputFolder, Map<Character, List<BufferedImage>> suitToImages, Map<String, List<BufferedImage>> valueToImages) {
-        Arrays.stream(Optional.ofNullable(inputFolder.listFiles()).orElse(new File[0])).forEach(file -> {
-            final BufferedImage image;
-            try {
-                image = ImageIO.read(file);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-
-            String cards = file.getName().substring(0, file.getName().length() - ".png".length());
-            int cardNum = 0;
-            while (!cards.isEmpty()) {
-                final String value = cards.startsWith("10") ? "10" : cards.substring(0, 1);
-                cards = cards.substring(value.length());
-
-                final char suit = cards.charAt(0);
-                cards = cards.substring(1);
-
-                final BufferedImage valueSubimage = image.getSubimage(CARD_OFFSETS_X[cardNum] + VALUE_AREA.x, VALUE_AREA.y, VALUE_AREA.width, VALUE_AREA.height);
-                final BufferedImage suitSubimage = image.getSubimage(CARD_OFFSETS_X[cardNum] + SUIT_AREA.x, SUIT_AREA.y, SUIT_AREA.width, SUIT_AREA.height);
-
-                suitToImages.computeIfAbsent(suit, v -> new ArrayList<>()).add(suitSubimage);
-                valueToImages.computeIfAbsent(value, v -> new ArrayList<>()).add(valueSubimage);
-
-                cardNum++;
-            }
-        });
-    }
+        // sorted, so that the order of the templates does not depend on the order the screenshots were added in
+        final Map<String, long[]> suitGlyphs = new TreeMap<>();
+        sums.averages(SampleImageCardRecognizer.SUIT_TEMPLATES).forEach((suit, grays) -> suitGlyphs.put(suit, binarize(grays)));
 
-    private static BufferedImage getMixedGrayscaleImage(List<BufferedImage> images) {
-        final BufferedImage firstImage = images.stream().findFirst().orElseThrow();
-        final int width = firstImage.getWidth();
-        final int height = firstImage.getHeight();
-
-        final BufferedImage averageImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                long sum = 0;
-                for (BufferedImage image : images) {
-                    sum += argbToGrey(image.getRGB(x, y));
-                }
-                final byte averageValue = (byte) (sum / images.size());
-                averageImage.setRGB(x, y, averageValue | averageValue << 8 | averageValue << 16);
-            }
-        }
+        final Map<String, long[]> valueGlyphs = new TreeMap<>();
+        sums.averages(SampleImageCardRecognizer.VALUE_TEMPLATES).forEach((value, grays) -> valueGlyphs.put(value, binarize(grays)));
 
+        suitGlyphs.forEach((suit, glyph) -> writePngImage(toImage(glyph, SUIT_SIZE), folder, suit));
+        valueGlyphs.forEach((value, glyph) -> writePngImage(toImage(glyph, VALUE_SIZE), folder, value));
 
-        return averageImage;
+        final Map<String, TemplatePack.TemplateSet> sets = new LinkedHashMap<>();
+        sets.put(SampleImageCardRecognizer.VALUE_TEMPLATES, new TemplatePack.TemplateSet(VALUE_SIZE.width, VALUE_SIZE.height, valueGlyphs));
+        sets.put(SampleImageCardRecognizer.SUIT_TEMPLATES, new TemplatePack.TemplateSet(SUIT_SIZE.width, SUIT_SIZE.height, suitGlyphs));
+        new TemplatePack(sets).write(new File(folder, SampleImageCardRecognizer.TEMPLATE_PACK));
     }
 
-    private static BufferedImage normalize(BufferedImage image) {
-        final int[] argb = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
-        final int max = Arrays.stream(argb).map(SampleImageExtractor::argbToGrey).max().orElseThrow();
-        final int min = Arrays.stream(argb).map(SampleImageExtractor::argbToGrey).min().orElseThrow();
-
-        final int avg = (max + min) / 2;
+    private static void addScreenshots(File inputFolder, TemplateSums sums) {
+        Arrays.stream(Optional.ofNullable(inputFolder.listFiles((dir, name) -> name.endsWith(".png"))).orElse(new File[0]))
+                .parallel()
+                .forEach(file -> {
+                    final String screenshot;
+                    final TableImage table;
+                    try {
+                        final byte[] png = Files.readAllBytes(file.toPath());
+                        screenshot = TemplateSums.contentHash(png);
+                        if (sums.contains(screenshot)) {
+                            return;
+                        }
+                        table = SampleImageCardRecognizer.STRIP_DECODER.decode(png);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    final TableLayout layout = table.layout();
+                    if (!layout.valueArea().getSize().equals(VALUE_SIZE) || !layout.suitArea().getSize().equals(SUIT_SIZE)) {
+                        System.err.println("Skipping " + file.getName() + ": its areas are not of the template size");
+                        return;
+                    }
+
+                    // the sums of one screenshot are added at once, so that one failing to read adds nothing
+                    final TemplateSums screenshotSums = new TemplateSums();
+                    String cards = file.getName().substring(0, file.getName().length() - ".png".length());
+                    try {
+                        int cardNum = 0;
+                        while (!cards.isEmpty()) {
+                            final String value = cards.startsWith("10") ? "10" : cards.substring(0, 1);
+                            cards = cards.substring(value.length());
+
+                            final String suit = cards.substring(0, 1);
+                            cards = cards.substring(1);
+
+                            screenshotSums.add(SampleImageCardRecognizer.VALUE_TEMPLATES, value, VALUE_SIZE.width, VALUE_SIZE.height,
+                                    grays(table, layout.valueArea(), layout.cardOffsetX(cardNum)));
+                            screenshotSums.add(SampleImageCardRecognizer.SUIT_TEMPLATES, suit, SUIT_SIZE.width, SUIT_SIZE.height,
+                                    grays(table, layout.suitArea(), layout.cardOffsetX(cardNum)));
+
+                            cardNum++;
+                        }
+                    } finally {
+                        RasterKernel.release();
+                    }
+                    // a copy read at the same time is not added twice
+                    sums.add(screenshot, screenshotSums);
+                });
+    }
 
+    private static int[] grays(TableImage table, Rectangle area, int cardOffset) {
+        final int[] argb = TemplateCardRecognizer.getAreaPixels(table.image(), table.origin(), area, area.getSize(), cardOffset);
+        final int[] grays = new int[argb.length];
         for (int i = 0; i < argb.length; i++) {
-            final int x = i % image.getWidth();
-            final int y = i / image.getWidth();
-            if (argbToGrey(argb[i]) < avg) {
-                image.setRGB(x, y, 0xFF000000);
-            } else {
-                image.setRGB(x, y, 0xFFFFFFFF);
-            }
+            grays[i] = BinaryGlyphs.gray(argb[i]);
         }
+        return grays;
+    }
 
-        return image;
+    private static long[] binarize(int[] grays) {
+        final int[] argb = new int[grays.length];
+        for (int i = 0; i < grays.length; i++) {
+            argb[i] = grays[i] | grays[i] << 8 | grays[i] << 16;
+        }
+        return BinaryGlyphs.binarize(argb, BinaryGlyphs.allocate(argb.length));
     }
 
-    private static int argbToGrey(int argb) {
-        return (argb & 0x00FF0000 + argb & 0x0000FF00 + argb & 0x0000FF) / 3;
+    private static BufferedImage toImage(long[] glyph, Dimension size) {
+        final int[] argb = new int[size.width * size.height];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = BinaryGlyphs.isDark(glyph, i) ? 0xFF000000 : 0xFFFFFFFF;
+        }
+        final BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, size.width, size.height, argb, 0, size.width);
+        return image;
     }
 
     private static void writePngImage(BufferedImage image, File folder, String filename) {
@@ -0,0 +1,194 @@
+package com.example.gdomo;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Running per-pixel sums of the gray glyph areas of every key, a value or a suit, of named sets, and the screenshots
+ * they were taken from. Averaging them gives the templates, and screenshots labeled later are added to the sums
+ * without going over the old ones again. Screenshots are known by a hash of their bytes, see {@link #contentHash}, as
+ * their names are their cards and two screenshots of the same cards are different samples.
+ * <p>
+ * Big-endian layout: magic {@code BSTS}, format version, screenshot count and hashes, set count, then for every set
+ * its name, area width and height, key count and the keys each followed by its area count and
+ * {@code width * height} longs. Strings are a short byte length followed by UTF-8 bytes.
+ */
+public class TemplateSums {
+    private static final int MAGIC = 0x42535453;
+    // version 1 kept screenshot names
+    private static final int VERSION = 2;
+
+    private record AreaSums(int width, int height, Map<String, long[]> sums, Map<String, Integer> counts) {
+    }
+
+    private final Set<String> screenshots = new HashSet<>();
+    private final Map<String, AreaSums> sets = new LinkedHashMap<>();
+
+    /**
+     * @return hex SHA-256 of the screenshot file
+     */
+    public static String contentHash(byte[] png) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(png);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final StringBuilder hex = new StringBuilder(2 * digest.length);
+        for (byte b : digest) {
+            hex.append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @param screenshot {@link #contentHash} of the screenshot
+     */
+    public synchronized boolean contains(String screenshot) {
+        return screenshots.contains(screenshot);
+    }
+
+    public synchronized int screenshots() {
+        return screenshots.size();
+    }
+
+    /**
+     * @param grays gray levels of an area of {@code width x height} row by row
+     */
+    public synchronized void add(String set, String key, int width, int height, int[] grays) {
+        final AreaSums areaSums = areaSums(set, width, height);
+        final long[] sums = areaSums.sums().computeIfAbsent(key, k -> new long[width * height]);
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] += grays[i];
+        }
+        areaSums.counts().merge(key, 1, Integer::sum);
+    }
+
+    /**
+     * Adds the sums of a screenshot taken into {@code sums} alone.
+     *
+     * @param screenshot {@link #contentHash} of the screenshot
+     * @return {@code false} if the screenshot was already added, its sums are then left out
+     */
+    public synchronized boolean add(String screenshot, TemplateSums sums) {
+        if (!screenshots.add(screenshot)) {
+            return false;
+        }
+        synchronized (sums) {
+            for (Map.Entry<String, AreaSums> set : sums.sets.entrySet()) {
+                final AreaSums added = set.getValue();
+                final AreaSums areaSums = areaSums(set.getKey(), added.width(), added.height());
+                for (Map.Entry<String, long[]> key : added.sums().entrySet()) {
+                    final long[] keySums = areaSums.sums().computeIfAbsent(key.getKey(), k -> new long[added.width() * added.height()]);
+                    for (int i = 0; i < keySums.length; i++) {
+                        keySums[i] += key.getValue()[i];
+                    }
+                    areaSums.counts().merge(key.getKey(), added.counts().get(key.getKey()), Integer::sum);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return average gray levels of every key of the set
+     */
+    public synchronized Map<String, int[]> averages(String set) {
+        final AreaSums areaSums = sets.get(set);
+        final Map<String, int[]> averages = new HashMap<>();
+        if (areaSums != null) {
+            areaSums.sums().forEach((key, sums) -> {
+                final int count = areaSums.counts().get(key);
+                averages.put(key, Arrays.stream(sums).mapToInt(sum -> (int) (sum / count)).toArray());
+            });
+        }
+        return averages;
+    }
+
+    private AreaSums areaSums(String set, int width, int height) {
+        final AreaSums areaSums = sets.computeIfAbsent(set, s -> new AreaSums(width, height, new HashMap<>(), new HashMap<>()));
+        if (areaSums.width() != width || areaSums.height() != height) {
+            throw new IllegalArgumentException("Areas of " + set + " are " + areaSums.width() + "x" + areaSums.height() + ", not " + width + "x" + height);
+        }
+        return areaSums;
+    }
+
+    public static TemplateSums read(Path file) throws IOException {
+        final TemplateSums templateSums = new TemplateSums();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not template sums: " + file);
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported template sums version " + version);
+            }
+            final int screenshotCount = in.readInt();
+            for (int i = 0; i < screenshotCount; i++) {
+                templateSums.screenshots.add(readString(in));
+            }
+            final int setCount = in.readInt();
+            for (int i = 0; i < setCount; i++) {
+                final AreaSums areaSums = templateSums.areaSums(readString(in), in.readInt(), in.readInt());
+                final int keyCount = in.readInt();
+                for (int j = 0; j < keyCount; j++) {
+                    final String key = readString(in);
+                    areaSums.counts().put(key, in.readInt());
+                    final long[] sums = new long[areaSums.width() * areaSums.height()];
+                    for (int k = 0; k < sums.length; k++) {
+                        sums[k] = in.readLong();
+                    }
+                    areaSums.sums().put(key, sums);
+                }
+            }
+        }
+        return templateSums;
+    }
+
+    public synchronized void write(Path file) throws IOException {
+        // an interrupted write never loses the sums of earlier runs
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(screenshots.size());
+            for (String screenshot : screenshots) {
+                writeString(out, screenshot);
+            }
+            out.writeInt(sets.size());
+            for (Map.Entry<String, AreaSums> set : sets.entrySet()) {
+                final AreaSums areaSums = set.getValue();
+                writeString(out, set.getKey());
+                out.writeInt(areaSums.width());
+                out.writeInt(areaSums.height());
+                out.writeInt(areaSums.sums().size());
+                for (Map.Entry<String, long[]> key : areaSums.sums().entrySet()) {
+                    writeString(out, key.getKey());
+                    out.writeInt(areaSums.counts().get(key.getKey()));
+                    for (long sum : key.getValue()) {
+                        out.writeLong(sum);
+                    }
+                }
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.gdomo;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Recognizes the screenshots twice with the glyph cache on and expects its counters among the metrics of the engine:
+ * every value and suit area looked up once per card, and the second pass answered from the cache.
+ */
+public class GlyphCacheMetricsTest {
+    public static void main(String[] args) throws IOException {
+        // read once, when the recognizer creates its caches
+        System.setProperty("brainshells.glyphCache.size", "4096");
+
+        final long[] cards = new long[1];
+        for (int pass = 0; pass < 2; pass++) {
+            SampleImageCardRecognizer.recognizeCards(args[0], (file, recognized) -> {
+                final String expectedCards = file.getName().substring(0, file.getName().length() - ".png".length());
+                if (!expectedCards.equals(recognized)) {
+                    throw new RuntimeException("Expected: " + expectedCards + ", actual: " + recognized);
+                }
+            });
+            if (pass == 0) {
+                cards[0] = recognizedCards(SampleImageCardRecognizer.ENGINE.metrics().snapshot());
+            }
+        }
+
+        final Map<String, Long> values = SampleImageCardRecognizer.ENGINE.metrics().snapshot();
+        System.out.println(values);
+        for (String cache : new String[]{"valueCache", "suitCache"}) {
+            final long hits = values.getOrDefault(cache + ".hits", -1L);
+            final long misses = values.getOrDefault(cache + ".misses", -1L);
+            if (hits + misses != 2 * cards[0]) {
+                throw new RuntimeException(cache + ": expected " + 2 * cards[0] + " lookups, actual: " + hits + " hits, " + misses + " misses");
+            }
+            if (hits < cards[0]) {
+                throw new RuntimeException(cache + ": expected the second pass of " + cards[0] + " cards to hit, actual: " + hits + " hits");
+            }
+        }
+        if (!RecognitionMetrics.toJson().contains("\"valueCache.hits\":" + values.get("valueCache.hits"))) {
+            throw new RuntimeException("Glyph cache counters missing in the JSON dump");
+        }
+    }
+
+    private static long recognizedCards(Map<String, Long> values) {
+        long cards = 0;
+        for (int count = 1; values.containsKey("cards." + count); count++) {
+            cards += count * values.get("cards." + count);
+        }
+        return cards;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.gdomo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Matches the value and suit areas of every card of the screenshots as the recognizer does and with a full search, and
+ * expects the same template at the same distance, with a runner-up distance no further than the full search found.
+ */
+public class GlyphMatcherTest {
+    public static void main(String[] args) throws IOException {
+        final File[] files = Objects.requireNonNull(new File(args[0]).listFiles((dir, name) -> name.endsWith(".png")));
+        Arrays.sort(files);
+        int cards = 0;
+        for (File file : files) {
+            final TableImage table = SampleImageCardRecognizer.STRIP_DECODER.decode(file);
+            final TableLayout layout = table.layout();
+            for (int slot = 0; slot < layout.cardSlots(); slot++) {
+                final int cardOffset = layout.cardOffsetX(slot);
+                if (TemplateCardRecognizer.isBackground(table.image(), table.origin(), layout.backgroundProbe(), cardOffset)) {
+                    break;
+                }
+                check(file, table, layout, cardOffset, true);
+                check(file, table, layout, cardOffset, false);
+                cards++;
+            }
+        }
+        System.out.println(cards + " cards matched as by a full search");
+    }
+
+    private static void check(File file, TableImage table, TableLayout layout, int cardOffset, boolean value) {
+        final long[] glyph = SampleImageCardRecognizer.toNormalizedGrayscale(TemplateCardRecognizer.getAreaPixels(table.image(), table.origin(),
+                value ? layout.valueArea() : layout.suitArea(), value ? SampleImageCardRecognizer.VALUE_SIZE : SampleImageCardRecognizer.SUIT_SIZE, cardOffset));
+        final GlyphMatcher matcher = value ? SampleImageCardRecognizer.VALUE_MATCHER : SampleImageCardRecognizer.SUIT_MATCHER;
+        final Map<String, long[]> templates = value ? SampleImageCardRecognizer.VALUES_TO_SAMPLE : SampleImageCardRecognizer.SUITS_TO_SAMPLE;
+
+        final GlyphMatch match = matcher.closest(glyph);
+        final GlyphMatch full = BinaryGlyphs.closest(glyph, templates);
+        if (!match.key().equals(full.key()) || match.distance() != full.distance() || match.secondDistance() > full.secondDistance()) {
+            throw new RuntimeException(file.getName() + ": expected " + full + ", actual: " + match);
+        }
+    }
+}